@@ -0,0 +1,46 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.example.springwebfluxmongodb.exceptions.DownstreamUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the calls in flight to one downstream. A call beyond the cap fails right away with
+ * {@link DownstreamUnavailableException} instead of queueing behind a slow downstream.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+
+    private final Counter rejectedCalls;
+
+    public Bulkhead(String name, int maxConcurrentCalls, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+
+        Gauge.builder("bulkhead.inFlight", this.permits, permits -> maxConcurrentCalls - permits.availablePermits())
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejectedCalls = Counter.builder("bulkhead.rejected")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!this.permits.tryAcquire()) {
+                this.rejectedCalls.increment();
+                return Mono.error(new DownstreamUnavailableException(
+                        this.name + " is unavailable, " + this.maxConcurrentCalls + " calls are already in flight"));
+            }
+            return call.doFinally(signalType -> this.permits.release());
+        });
+    }
+}
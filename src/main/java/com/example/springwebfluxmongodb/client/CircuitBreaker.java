@@ -0,0 +1,203 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.example.springwebfluxmongodb.exceptions.DownstreamUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Predicate;
+
+/**
+ * Circuit breaker over the calls to one downstream.
+ * <ul>
+ *     <li>CLOSED: calls go through, the outcomes of the last windowSize calls are kept. Once the window is full and
+ *     the failure rate reaches the threshold the breaker opens.</li>
+ *     <li>OPEN: calls fail right away with {@link DownstreamUnavailableException} for openDuration.</li>
+ *     <li>HALF_OPEN: up to halfOpenCalls trial calls go through, the others fail fast. The breaker closes when all
+ *     trials succeed and opens again on the first failure.</li>
+ * </ul>
+ * Only errors of the downstream itself (see the failure predicate) count as failures, a 404 is a success.
+ * An outcome only counts in the state that admitted the call: every transition starts a new generation, and a call
+ * that ends after a transition, such as a slow call admitted while closed, is ignored.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final long NOT_PERMITTED = -1;
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final Predicate<Throwable> isFailure;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Outcomes of the last calls in a ring, guarded by this.
+     */
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private Instant openUntil = Instant.MIN;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    private final Counter rejectedCalls;
+
+    public CircuitBreaker(String name, int windowSize, double failureRateThreshold, Duration openDuration,
+                          int halfOpenCalls, Predicate<Throwable> isFailure, MeterRegistry meterRegistry, Clock clock) {
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.isFailure = isFailure;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("circuitBreaker.state", this, circuitBreaker -> circuitBreaker.getState().ordinal())
+                .description("0 closed, 1 open, 2 half open")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejectedCalls = Counter.builder("circuitBreaker.rejected")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        return Mono.defer(() -> {
+            long permittedGeneration = tryAcquirePermission();
+            if (permittedGeneration == NOT_PERMITTED) {
+                this.rejectedCalls.increment();
+                return Mono.error(new DownstreamUnavailableException(this.name + " is unavailable, its circuit breaker is open"));
+            }
+            return call
+                    .doOnSuccess(value -> onSuccess(permittedGeneration))
+                    .doOnError(error -> {
+                        if (this.isFailure.test(error)) {
+                            onFailure(permittedGeneration);
+                        } else {
+                            onSuccess(permittedGeneration);
+                        }
+                    })
+                    .doFinally(signalType -> {
+                        if (signalType == SignalType.CANCEL) {
+                            onCancel(permittedGeneration);
+                        }
+                    });
+        });
+    }
+
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    /**
+     * @return the generation the call is admitted in, {@link #NOT_PERMITTED} when it is rejected
+     */
+    private synchronized long tryAcquirePermission() {
+        if (this.state == State.OPEN && !this.clock.instant().isBefore(this.openUntil)) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (this.state == State.HALF_OPEN) {
+            if (this.halfOpenPermits == 0) {
+                return NOT_PERMITTED;
+            }
+            this.halfOpenPermits--;
+            return this.generation;
+        }
+        return this.state == State.CLOSED ? this.generation : NOT_PERMITTED;
+    }
+
+    private synchronized void onSuccess(long permittedGeneration) {
+        if (permittedGeneration != this.generation) {
+            return;
+        }
+        if (this.state == State.HALF_OPEN) {
+            if (++this.halfOpenSuccesses >= this.halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (this.state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    private synchronized void onFailure(long permittedGeneration) {
+        if (permittedGeneration != this.generation) {
+            return;
+        }
+        if (this.state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (this.state == State.CLOSED) {
+            record(true);
+            if (this.windowCount == this.window.length
+                    && (double) this.windowFailures / this.windowCount >= this.failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * A cancelled trial call gives its permit back, it said nothing about the downstream.
+     */
+    private synchronized void onCancel(long permittedGeneration) {
+        if (permittedGeneration == this.generation && this.state == State.HALF_OPEN && this.halfOpenPermits + this.halfOpenSuccesses < this.halfOpenCalls) {
+            this.halfOpenPermits++;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (this.windowCount == this.window.length) {
+            if (this.window[this.windowPosition]) {
+                this.windowFailures--;
+            }
+        } else {
+            this.windowCount++;
+        }
+        this.window[this.windowPosition] = failure;
+        if (failure) {
+            this.windowFailures++;
+        }
+        this.windowPosition = (this.windowPosition + 1) % this.window.length;
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("Circuit breaker {} : {} -> {}", this.name, this.state, newState);
+        Counter.builder("circuitBreaker.transitions")
+                .tag("name", this.name)
+                .tag("from", this.state.name())
+                .tag("to", newState.name())
+                .register(this.meterRegistry)
+                .increment();
+
+        this.state = newState;
+        this.generation++;
+        switch (newState) {
+            case OPEN -> this.openUntil = this.clock.instant().plus(this.openDuration);
+            case HALF_OPEN -> {
+                this.halfOpenPermits = this.halfOpenCalls;
+                this.halfOpenSuccesses = 0;
+            }
+            case CLOSED -> {
+                this.windowPosition = 0;
+                this.windowCount = 0;
+                this.windowFailures = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.springwebfluxmongodb.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests: when a call has not answered after the hedge delay, an identical second call is sent and the
+ * first answer wins, the other call is cancelled. The delay is either fixed or the given percentile of the recent
+ * latencies of this downstream, and hedges are capped by a {@link RequestBudget} so that they cannot double the
+ * load on a downstream which is slow across the board.
+ */
+@Slf4j
+public class Hedger {
+
+    private static final int LATENCY_SAMPLES = 1000;
+    private static final int MIN_LATENCY_SAMPLES = 100;
+    private static final int DELAY_REFRESH_INTERVAL = 100;
+
+    private final boolean enabled;
+    private final Duration fixedDelay;
+    private final double percentile;
+    private final Duration minDelay;
+    private final RequestBudget budget;
+
+    /**
+     * Ring of the recent latencies in nanos and the delay computed from it, guarded by this.
+     */
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyPosition;
+    private int latencyCount;
+    private int samplesSinceRefresh;
+    private Duration adaptiveDelay;
+
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final Counter hedgesDenied;
+
+    /**
+     * @param fixedDelay the hedge delay, zero to use the percentile of the recent latencies
+     */
+    public Hedger(String name, boolean enabled, Duration fixedDelay, double percentile, Duration minDelay,
+                  double budgetRatio, int budgetMaxTokens, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.fixedDelay = fixedDelay;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.budget = new RequestBudget(budgetRatio, budgetMaxTokens);
+
+        this.hedgesSent = hedgeCounter(meterRegistry, name, "sent");
+        this.hedgesWon = hedgeCounter(meterRegistry, name, "won");
+        this.hedgesDenied = hedgeCounter(meterRegistry, name, "budgetExhausted");
+    }
+
+    private static Counter hedgeCounter(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("restClient.hedges")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> apply(Supplier<Mono<T>> call) {
+        if (!this.enabled) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> {
+            this.budget.onCall();
+            long start = System.nanoTime();
+            Duration delay = hedgeDelay();
+            Mono<T> primary = Mono.defer(call);
+            if (delay == null) {
+                return primary.doOnSuccess(value -> recordLatency(System.nanoTime() - start));
+            }
+
+            AtomicBoolean hedgeAnswered = new AtomicBoolean();
+            Mono<T> hedge = Mono.delay(delay)
+                    .flatMap(tick -> {
+                        if (!this.budget.tryAcquire()) {
+                            this.hedgesDenied.increment();
+                            return Mono.never();
+                        }
+                        this.hedgesSent.increment();
+                        return Mono.defer(call).doOnSuccess(value -> hedgeAnswered.set(true));
+                    });
+
+            return Mono.firstWithSignal(primary, hedge)
+                    .doOnSuccess(value -> {
+                        recordLatency(System.nanoTime() - start);
+                        if (hedgeAnswered.get()) {
+                            this.hedgesWon.increment();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * The delay after which a hedge is sent, null while too few latencies are known to compute it.
+     */
+    synchronized Duration hedgeDelay() {
+        if (!this.fixedDelay.isZero()) {
+            return this.fixedDelay;
+        }
+        if (this.latencyCount < MIN_LATENCY_SAMPLES) {
+            return null;
+        }
+        if (this.adaptiveDelay == null || this.samplesSinceRefresh >= DELAY_REFRESH_INTERVAL) {
+            long[] sorted = Arrays.copyOf(this.latencies, this.latencyCount);
+            Arrays.sort(sorted);
+            int index = Math.min(this.latencyCount - 1, (int) Math.ceil(this.percentile * this.latencyCount) - 1);
+            Duration observed = Duration.ofNanos(sorted[Math.max(0, index)]);
+            this.adaptiveDelay = observed.compareTo(this.minDelay) < 0 ? this.minDelay : observed;
+            this.samplesSinceRefresh = 0;
+        }
+        return this.adaptiveDelay;
+    }
+
+    synchronized void recordLatency(long nanos) {
+        this.latencies[this.latencyPosition] = nanos;
+        this.latencyPosition = (this.latencyPosition + 1) % LATENCY_SAMPLES;
+        if (this.latencyCount < LATENCY_SAMPLES) {
+            this.latencyCount++;
+        }
+        this.samplesSinceRefresh++;
+    }
+}
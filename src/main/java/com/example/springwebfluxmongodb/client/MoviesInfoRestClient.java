@@ -1,36 +1,105 @@
 package com.example.springwebfluxmongodb.client;
 
 import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.exceptions.DownstreamUnavailableException;
 import com.example.springwebfluxmongodb.exceptions.MovieInfoClientException;
 import com.example.springwebfluxmongodb.exceptions.MovieInfoServerException;
+import com.example.springwebfluxmongodb.instrumentation.ReactiveInstrumentation;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
-import java.time.Duration;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
 public class MoviesInfoRestClient {
     private final WebClient webClient;
 
+    private final ReactiveInstrumentation instrumentation;
+
+    private final SingleFlight<String, MovieInfo> movieInfoFlights;
+
+    private final RetryPolicy retryPolicy;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
+    private final Hedger hedger;
+
+    private final Cache<String, MovieInfo> lastGoodMovieInfos;
+
+    private final ValidatorCache<String, MovieInfo> movieInfoValidators;
+
     @Value("${restClient.moviesInfoUrl}")
     private String moviesInfoURL;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    public MoviesInfoRestClient(WebClient webClient, ReactiveInstrumentation instrumentation, MeterRegistry meterRegistry,
+                                RetryPolicy retryPolicy, ResilienceRegistry resilienceRegistry,
+                                @Value("${restClient.validators.maxSize:1000}") long validatorsMaxSize) {
         this.webClient = webClient;
+        this.instrumentation = instrumentation;
+        this.retryPolicy = retryPolicy;
+        this.movieInfoFlights = new SingleFlight<>("movieInfo", meterRegistry);
+        this.circuitBreaker = resilienceRegistry.circuitBreaker("movieInfo");
+        this.bulkhead = resilienceRegistry.bulkhead("movieInfo");
+        this.hedger = resilienceRegistry.hedger("movieInfo");
+        this.lastGoodMovieInfos = resilienceRegistry.fallbackCache("movieInfo");
+        this.movieInfoValidators = new ValidatorCache<>("movieInfo", validatorsMaxSize, meterRegistry);
     }
 
+    /**
+     * Concurrent calls for the same id share one exchange. While the movie info service is unavailable the last
+     * movie info retrieved for the id is returned, if there is one. A slow exchange is hedged when
+     * restClient.hedge.enabled is set. The exchange is conditional when the movie info was retrieved before,
+     * an unchanged movie info is answered with 304 and taken from the validator cache.
+     */
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        return this.movieInfoFlights.execute(movieId, () -> guarded(() -> this.retryPolicy.apply(exchangeMovieInfo(movieId)))
+                .doOnNext(movieInfo -> this.lastGoodMovieInfos.put(movieId, movieInfo))
+                .onErrorResume(error -> error instanceof DownstreamUnavailableException || RetryPolicy.isRetryable(error),
+                        error -> fallback(movieId, error)));
+    }
+
+    private Mono<MovieInfo> guarded(Supplier<Mono<MovieInfo>> exchange) {
+        return this.bulkhead.apply(this.circuitBreaker.apply(this.hedger.apply(exchange)));
+    }
+
+    private Mono<MovieInfo> fallback(String movieId, Throwable error) {
+        MovieInfo movieInfo = this.lastGoodMovieInfos.getIfPresent(movieId);
+        if (movieInfo == null) {
+            return Mono.error(error);
+        }
+        log.warn("Serving the last good MovieInfo for id {} : {}", movieId, error.getMessage());
+        return Mono.just(movieInfo);
+    }
+
+    /**
+     * One attempt, timed on its own like {@link ReviewsRestClient}, the retries are applied around it.
+     */
+    private Mono<MovieInfo> exchangeMovieInfo(String movieId) {
+        return this.instrumentation.mono("client.movieInfo", requestMovieInfo(movieId, true)
+                .flatMap(response -> this.movieInfoValidators.resolve(movieId, response, () -> requestMovieInfo(movieId, false))));
+    }
+
+    private Mono<ResponseEntity<MovieInfo>> requestMovieInfo(String movieId, boolean conditional) {
         String url = moviesInfoURL.concat("/{id}");
 
         return webClient
                 .get()
                 .uri(url, movieId)
+                .headers(headers -> {
+                    if (conditional) {
+                        this.movieInfoValidators.addConditions(movieId, headers);
+                    }
+                })
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is : {} ", clientResponse.statusCode().value());
@@ -50,8 +119,6 @@ public class MoviesInfoRestClient {
                     return clientResponse.bodyToMono(String.class)
                             .flatMap(responseMessage -> Mono.error(new MovieInfoServerException(responseMessage)));
                 })
-                .bodyToMono(MovieInfo.class)
-                .retryWhen(Retry.fixedDelay(3, Duration.ofSeconds(1)))
-                .log();
+                .toEntity(MovieInfo.class);
     }
 }
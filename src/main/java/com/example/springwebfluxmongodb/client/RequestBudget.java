@@ -0,0 +1,50 @@
+package com.example.springwebfluxmongodb.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that caps extra requests (retries, hedges) as a ratio of the normal calls. Every call deposits
+ * ratio tokens and every extra request withdraws one, so when the downstream fails across the board the extra load
+ * stays near ratio times the normal load instead of multiplying it. The bucket starts full, which allows a few
+ * extra requests right after startup or a quiet period.
+ * <p>
+ * The refill is per call, not per unit of time. Amounts are kept in thousandths of a token (millitokens), so that
+ * a fractional ratio is deposited exactly with integer arithmetic.
+ */
+public class RequestBudget {
+
+    private static final long MILLITOKENS_PER_TOKEN = 1000;
+
+    private final long depositMillitokens;
+    private final long capacityMillitokens;
+    private final AtomicLong balanceMillitokens;
+
+    /**
+     * @param ratio     - tokens deposited per normal call, the extra requests allowed per call over time
+     * @param maxTokens - capacity of the bucket in tokens, the extra requests allowed in a burst
+     */
+    public RequestBudget(double ratio, int maxTokens) {
+        this.depositMillitokens = Math.round(ratio * MILLITOKENS_PER_TOKEN);
+        this.capacityMillitokens = maxTokens * MILLITOKENS_PER_TOKEN;
+        this.balanceMillitokens = new AtomicLong(this.capacityMillitokens);
+    }
+
+    public void onCall() {
+        this.balanceMillitokens.accumulateAndGet(this.depositMillitokens,
+                (balance, deposit) -> Math.min(this.capacityMillitokens, balance + deposit));
+    }
+
+    /**
+     * Withdraw the token of one extra request, false when the budget is spent.
+     */
+    public boolean tryAcquire() {
+        long balance;
+        do {
+            balance = this.balanceMillitokens.get();
+            if (balance < MILLITOKENS_PER_TOKEN) {
+                return false;
+            }
+        } while (!this.balanceMillitokens.compareAndSet(balance, balance - MILLITOKENS_PER_TOKEN));
+        return true;
+    }
+}
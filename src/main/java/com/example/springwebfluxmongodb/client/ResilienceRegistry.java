@@ -0,0 +1,100 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Builds the circuit breaker, bulkhead, hedger and last good response cache of each downstream from the
+ * restClient.circuitBreaker, restClient.bulkhead, restClient.hedge and restClient.fallback settings.
+ */
+@Component
+public class ResilienceRegistry {
+
+    private final MeterRegistry meterRegistry;
+
+    private final int windowSize;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+
+    private final int maxConcurrentCalls;
+
+    private final boolean hedgeEnabled;
+    private final Duration hedgeDelay;
+    private final double hedgePercentile;
+    private final Duration hedgeMinDelay;
+    private final double hedgeBudgetRatio;
+    private final int hedgeBudgetMaxTokens;
+
+    private final long fallbackMaxSize;
+    private final Duration fallbackTtl;
+
+    /**
+     * @param hedgeBudgetRatio     - hedge tokens earned per call (a refill per call, not per second), 0.05 allows
+     *                             one hedge every twenty calls
+     * @param hedgeBudgetMaxTokens - hedges that can be saved up and sent in a burst
+     */
+    public ResilienceRegistry(MeterRegistry meterRegistry,
+                              @Value("${restClient.circuitBreaker.windowSize:20}") int windowSize,
+                              @Value("${restClient.circuitBreaker.failureRateThreshold:0.5}") double failureRateThreshold,
+                              @Value("${restClient.circuitBreaker.openDuration:10s}") Duration openDuration,
+                              @Value("${restClient.circuitBreaker.halfOpenCalls:3}") int halfOpenCalls,
+                              @Value("${restClient.bulkhead.maxConcurrentCalls:100}") int maxConcurrentCalls,
+                              @Value("${restClient.hedge.enabled:false}") boolean hedgeEnabled,
+                              @Value("${restClient.hedge.delay:0ms}") Duration hedgeDelay,
+                              @Value("${restClient.hedge.percentile:0.95}") double hedgePercentile,
+                              @Value("${restClient.hedge.minDelay:10ms}") Duration hedgeMinDelay,
+                              @Value("${restClient.hedge.budgetRatio:0.05}") double hedgeBudgetRatio,
+                              @Value("${restClient.hedge.budgetMaxTokens:10}") int hedgeBudgetMaxTokens,
+                              @Value("${restClient.fallback.maxSize:10000}") long fallbackMaxSize,
+                              @Value("${restClient.fallback.ttl:1h}") Duration fallbackTtl) {
+        this.meterRegistry = meterRegistry;
+        this.windowSize = windowSize;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeDelay = hedgeDelay;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelay = hedgeMinDelay;
+        this.hedgeBudgetRatio = hedgeBudgetRatio;
+        this.hedgeBudgetMaxTokens = hedgeBudgetMaxTokens;
+        this.fallbackMaxSize = fallbackMaxSize;
+        this.fallbackTtl = fallbackTtl;
+    }
+
+    public CircuitBreaker circuitBreaker(String name) {
+        return new CircuitBreaker(name, this.windowSize, this.failureRateThreshold, this.openDuration,
+                this.halfOpenCalls, RetryPolicy::isRetryable, this.meterRegistry, Clock.systemUTC());
+    }
+
+    public Bulkhead bulkhead(String name) {
+        return new Bulkhead(name, this.maxConcurrentCalls, this.meterRegistry);
+    }
+
+    public Hedger hedger(String name) {
+        return new Hedger(name, this.hedgeEnabled, this.hedgeDelay, this.hedgePercentile, this.hedgeMinDelay,
+                this.hedgeBudgetRatio, this.hedgeBudgetMaxTokens, this.meterRegistry);
+    }
+
+    /**
+     * Last successful response per key, served while the downstream is unavailable.
+     */
+    public <K, V> Cache<K, V> fallbackCache(String name) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(this.fallbackMaxSize)
+                .expireAfterWrite(this.fallbackTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(this.meterRegistry, cache, "restClient.fallback." + name);
+        return cache;
+    }
+}
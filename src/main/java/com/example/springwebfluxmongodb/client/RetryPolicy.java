@@ -0,0 +1,88 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.example.springwebfluxmongodb.exceptions.MovieInfoClientException;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retry policy shared by the rest clients: exponential backoff with jitter, so that clients do not retry in
+ * lockstep, only for errors a retry can fix (5xx, 408, 429, connection failures and timeouts), and within one
+ * {@link RequestBudget} for all clients. The last error is propagated as is once retries are exhausted.
+ */
+@Slf4j
+@Component
+public class RetryPolicy {
+
+    private final RequestBudget budget;
+    private final Retry retrySpec;
+
+    private final Counter retries;
+    private final Counter retriesDenied;
+
+    /**
+     * @param budgetRatio     - retry tokens earned per call (a refill per call, not per second), 0.1 allows one
+     *                        retry every ten calls
+     * @param budgetMaxTokens - retries that can be saved up and spent in a burst
+     */
+    public RetryPolicy(MeterRegistry meterRegistry,
+                       @Value("${restClient.retry.maxRetries:3}") int maxRetries,
+                       @Value("${restClient.retry.minBackoff:100ms}") Duration minBackoff,
+                       @Value("${restClient.retry.maxBackoff:2s}") Duration maxBackoff,
+                       @Value("${restClient.retry.jitter:0.5}") double jitter,
+                       @Value("${restClient.retry.budgetRatio:0.1}") double budgetRatio,
+                       @Value("${restClient.retry.budgetMaxTokens:20}") int budgetMaxTokens) {
+        this.budget = new RequestBudget(budgetRatio, budgetMaxTokens);
+        this.retries = Counter.builder("restClient.retries")
+                .tag("outcome", "retried")
+                .register(meterRegistry);
+        this.retriesDenied = Counter.builder("restClient.retries")
+                .tag("outcome", "budgetExhausted")
+                .register(meterRegistry);
+
+        this.retrySpec = Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(jitter)
+                .filter(error -> isRetryable(error) && acquireRetry(error))
+                .onRetryExhaustedThrow((spec, retrySignal) -> retrySignal.failure());
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        return Mono.defer(() -> {
+            this.budget.onCall();
+            return call.retryWhen(this.retrySpec);
+        });
+    }
+
+    static boolean isRetryable(Throwable error) {
+        if (error instanceof MovieInfoClientException clientException) {
+            Integer statusCode = clientException.getStatusCode();
+            return statusCode != null && (statusCode == HttpStatus.REQUEST_TIMEOUT.value()
+                    || statusCode == HttpStatus.TOO_MANY_REQUESTS.value());
+        }
+        return error instanceof MovieInfoServerException
+                || error instanceof WebClientRequestException
+                || error instanceof TimeoutException
+                || error instanceof io.netty.handler.timeout.TimeoutException;
+    }
+
+    private boolean acquireRetry(Throwable error) {
+        if (this.budget.tryAcquire()) {
+            this.retries.increment();
+            return true;
+        }
+        log.warn("Retry budget exhausted, not retrying : {}", error.getMessage());
+        this.retriesDenied.increment();
+        return false;
+    }
+}
@@ -1,40 +1,117 @@
 package com.example.springwebfluxmongodb.client;
 
 import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.exceptions.DownstreamUnavailableException;
 import com.example.springwebfluxmongodb.exceptions.MovieInfoClientException;
 import com.example.springwebfluxmongodb.exceptions.MovieInfoServerException;
+import com.example.springwebfluxmongodb.instrumentation.ReactiveInstrumentation;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.function.Supplier;
+
 @Slf4j
 @Component
 public class ReviewsRestClient {
 
     private WebClient webClient;
 
+    private final ReactiveInstrumentation instrumentation;
+
+    private final SingleFlight<List<String>, List<Review>> reviewFlights;
+
+    private final RetryPolicy retryPolicy;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
+    private final Hedger hedger;
+
+    private final Cache<List<String>, List<Review>> lastGoodReviews;
+
+    private final ValidatorCache<List<String>, List<Review>> reviewValidators;
+
     @Value("${restClient.reviewsUrl}")
     private String reviewsURL;
 
-    public ReviewsRestClient(WebClient webClient) {
+    public ReviewsRestClient(WebClient webClient, ReactiveInstrumentation instrumentation, MeterRegistry meterRegistry,
+                             RetryPolicy retryPolicy, ResilienceRegistry resilienceRegistry,
+                             @Value("${restClient.validators.maxSize:1000}") long validatorsMaxSize) {
         this.webClient = webClient;
+        this.instrumentation = instrumentation;
+        this.retryPolicy = retryPolicy;
+        this.reviewFlights = new SingleFlight<>("reviews", meterRegistry);
+        this.circuitBreaker = resilienceRegistry.circuitBreaker("reviews");
+        this.bulkhead = resilienceRegistry.bulkhead("reviews");
+        this.hedger = resilienceRegistry.hedger("reviews");
+        this.lastGoodReviews = resilienceRegistry.fallbackCache("reviews");
+        this.reviewValidators = new ValidatorCache<>("reviews", validatorsMaxSize, meterRegistry);
     }
 
     public Flux<Review> retrieveReviews(String movieId) {
+        return retrieveReviews(List.of(movieId));
+    }
 
+    /**
+     * Reviews of several movies in one call, the movieInfoId parameter is repeated for every id.
+     * Concurrent calls for the same ids share one exchange. While the reviews service is unavailable the last
+     * reviews retrieved for the same ids are returned, if there are any. A slow exchange is hedged when
+     * restClient.hedge.enabled is set. The exchange is conditional when the same ids were retrieved before,
+     * unchanged reviews are answered with 304 and taken from the validator cache.
+     */
+    public Flux<Review> retrieveReviews(List<String> movieIds) {
+        List<String> key = List.copyOf(movieIds);
+        return this.reviewFlights.execute(key, () -> guarded(() -> this.retryPolicy.apply(exchangeReviews(key)))
+                        .doOnNext(reviews -> this.lastGoodReviews.put(key, reviews))
+                        .onErrorResume(error -> error instanceof DownstreamUnavailableException || RetryPolicy.isRetryable(error),
+                                error -> fallback(key, error)))
+                .flatMapIterable(reviews -> reviews);
+    }
+
+    private Mono<List<Review>> guarded(Supplier<Mono<List<Review>>> exchange) {
+        return this.bulkhead.apply(this.circuitBreaker.apply(this.hedger.apply(exchange)));
+    }
+
+    private Mono<List<Review>> fallback(List<String> movieIds, Throwable error) {
+        List<Review> reviews = this.lastGoodReviews.getIfPresent(movieIds);
+        if (reviews == null) {
+            return Mono.error(error);
+        }
+        log.warn("Serving the last good reviews for ids {} : {}", movieIds, error.getMessage());
+        return Mono.just(reviews);
+    }
+
+    private Mono<List<Review>> exchangeReviews(List<String> movieIds) {
+        return this.instrumentation.mono("client.reviews", requestReviews(movieIds, true)
+                .flatMap(response -> this.reviewValidators.resolve(movieIds, response, () -> requestReviews(movieIds, false))));
+    }
+
+    private Mono<ResponseEntity<List<Review>>> requestReviews(List<String> movieIds, boolean conditional) {
         String url = UriComponentsBuilder.fromHttpUrl(reviewsURL)
-                .queryParam("movieInfoId", movieId)
+                .queryParam("movieInfoId", movieIds.toArray())
                 .buildAndExpand()
                 .toString();
+        String movieId = String.join(",", movieIds);
 
         return webClient
                 .get()
                 .uri(url)
+                .headers(headers -> {
+                    if (conditional) {
+                        this.reviewValidators.addConditions(movieIds, headers);
+                    }
+                })
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is : {} ", clientResponse.statusCode().value());
@@ -54,7 +131,6 @@ public class ReviewsRestClient {
                     return clientResponse.bodyToMono(String.class)
                             .flatMap(responseMessage -> Mono.error(new MovieInfoServerException(responseMessage)));
                 })
-                .bodyToFlux(Review.class)
-                .log();
+                .toEntityList(Review.class);
     }
 }
@@ -0,0 +1,69 @@
+package com.example.springwebfluxmongodb.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key onto one upstream call. Callers arriving while a call is in flight
+ * join it and receive its value, empty completion or error. The upstream call runs on its own subscription, so a
+ * caller cancelling only stops waiting and never cancels the call for the others (a call nobody waits for any more
+ * still runs to completion, bounded by the client timeouts). The key is released as soon as the call terminates,
+ * nothing is cached.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Sinks.One<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter calls;
+    private final Counter coalescedCalls;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.calls = Counter.builder("singleFlight.calls")
+                .description("Calls that went upstream")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.coalescedCalls = Counter.builder("singleFlight.coalesced")
+                .description("Calls that joined a call already in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            Sinks.One<V> flight = Sinks.one();
+            Sinks.One<V> existingFlight = this.inFlight.putIfAbsent(key, flight);
+            if (existingFlight != null) {
+                this.coalescedCalls.increment();
+                return existingFlight.asMono();
+            }
+
+            this.calls.increment();
+            // the key is released before the result is emitted, so a caller woken up by it never joins a finished call
+            Mono.defer(call).subscribe(
+                    value -> {
+                        this.inFlight.remove(key, flight);
+                        flight.tryEmitValue(value);
+                    },
+                    error -> {
+                        this.inFlight.remove(key, flight);
+                        flight.tryEmitError(error);
+                    },
+                    () -> {
+                        if (this.inFlight.remove(key, flight)) {
+                            flight.tryEmitEmpty();
+                        }
+                    });
+            return flight.asMono();
+        });
+    }
+
+    int inFlightCount() {
+        return this.inFlight.size();
+    }
+}
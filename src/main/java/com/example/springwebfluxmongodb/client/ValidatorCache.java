@@ -0,0 +1,82 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Entity tag and body of the last response per key, so that the next request for the key is conditional
+ * (If-None-Match) and a 304 answer, which costs headers only, can be resolved to the cached body.
+ */
+public class ValidatorCache<K, V> {
+
+    private final Cache<K, Validated<V>> validated;
+
+    private final Counter notModified;
+
+    public ValidatorCache(String name, long maxSize, MeterRegistry meterRegistry) {
+        this.validated = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.validated, "restClient.validators." + name);
+        this.notModified = Counter.builder("restClient.notModified")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Add If-None-Match when a validated body is cached for the key.
+     */
+    public void addConditions(K key, HttpHeaders headers) {
+        Validated<V> cached = this.validated.getIfPresent(key);
+        if (cached != null) {
+            headers.setIfNoneMatch(cached.getETag());
+        }
+    }
+
+    /**
+     * @param unconditional - the same request without If-None-Match, sent when a 304 arrives after the cached body
+     *                      was evicted while the conditional request was in flight
+     * @return the cached body for a 304, the response body otherwise, which is cached when the response is tagged
+     */
+    public Mono<V> resolve(K key, ResponseEntity<V> response, Supplier<Mono<ResponseEntity<V>>> unconditional) {
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            Validated<V> cached = this.validated.getIfPresent(key);
+            if (cached == null) {
+                return unconditional.get()
+                        .flatMap(reissuedResponse -> Mono.justOrEmpty(store(key, reissuedResponse)));
+            }
+            this.notModified.increment();
+            return Mono.just(cached.getBody());
+        }
+        return Mono.justOrEmpty(store(key, response));
+    }
+
+    private V store(K key, ResponseEntity<V> response) {
+        String eTag = response.getHeaders().getETag();
+        if (eTag != null && response.getBody() != null) {
+            this.validated.put(key, new Validated<>(eTag, response.getBody()));
+        } else {
+            this.validated.invalidate(key);
+        }
+        return response.getBody();
+    }
+
+    @Value
+    private static class Validated<V> {
+
+        String eTag;
+
+        V body;
+    }
+}
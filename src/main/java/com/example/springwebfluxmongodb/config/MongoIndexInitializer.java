@@ -0,0 +1,177 @@
+package com.example.springwebfluxmongodb.config;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.repository.MovieInfoRepositoryCustom;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the indexes declared on the documents before the application takes traffic and then checks with explain
+ * that every repository query path is served by an index.
+ */
+@Slf4j
+@Component
+public class MongoIndexInitializer implements InitializingBean {
+
+    public enum CollscanCheck {
+        OFF,
+        WARN,
+        FAIL
+    }
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * The filters, and sorts where the order matters, the repository queries send to Mongo, run with explain at startup.
+     */
+    private static final Map<String, IndexProbe> QUERY_PROBES = Map.of(
+            "MovieInfoRepository.findByName", new IndexProbe(MovieInfo.class, Query.query(Criteria.where("name").is(""))),
+            "MovieInfoRepository.findByYearBefore", new IndexProbe(MovieInfo.class, Query.query(Criteria.where("year").lt(0))),
+            "MovieInfoRepository.findByCastMemberAfter", new IndexProbe(MovieInfo.class, castMemberQuery()),
+            "ReviewReactiveRepository.findByMovieInfoId", new IndexProbe(Review.class, Query.query(Criteria.where("movieInfoId").is(0L))));
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final MongoMappingContext mongoMappingContext;
+
+    @Value("${mongo.indexes.collscanCheck:warn}")
+    private CollscanCheck collscanCheck;
+
+    @Value("${movieInfo.castMember.ignoreCase:false}")
+    private boolean castMemberIgnoreCase;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate, MongoMappingContext mongoMappingContext) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.mongoMappingContext = mongoMappingContext;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        ensureIndexes().block(STARTUP_TIMEOUT);
+
+        if (collscanCheck != CollscanCheck.OFF) {
+            checkQueryPlans().block(STARTUP_TIMEOUT);
+        }
+    }
+
+    private Mono<Void> ensureIndexes() {
+        IndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+
+        return Flux.fromIterable(mongoMappingContext.getPersistentEntities())
+                .filter(entity -> entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class))
+                .concatMap(entity -> Flux.fromIterable(indexResolver.resolveIndexFor(entity.getTypeInformation()))
+                        .concatMap(indexDefinition -> reactiveMongoTemplate.indexOps(entity.getCollection()).ensureIndex(indexDefinition))
+                        .doOnNext(indexName -> log.info("Ensured index {} on {}", indexName, entity.getCollection())))
+                .then(castMemberIgnoreCase ? ensureCastMemberIgnoreCaseIndex() : Mono.empty());
+    }
+
+    /**
+     * Same keys as the cast_id index declared on {@link MovieInfo}, built with the collation of the case-insensitive lookup.
+     */
+    private Mono<Void> ensureCastMemberIgnoreCaseIndex() {
+        Index index = new Index()
+                .on("cast", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("cast_id_ignoreCase")
+                .collation(MovieInfoRepositoryCustom.CAST_MEMBER_IGNORE_CASE);
+
+        return reactiveMongoTemplate.indexOps(MovieInfo.class).ensureIndex(index)
+                .doOnNext(indexName -> log.info("Ensured index {} on {}", indexName, reactiveMongoTemplate.getCollectionName(MovieInfo.class)))
+                .then();
+    }
+
+    private static Query castMemberQuery() {
+        return Query.query(Criteria.where("cast").is("")).with(Sort.by("_id"));
+    }
+
+    Map<String, IndexProbe> queryProbes() {
+        if (!castMemberIgnoreCase) {
+            return QUERY_PROBES;
+        }
+
+        Map<String, IndexProbe> probes = new LinkedHashMap<>(QUERY_PROBES);
+        probes.put("MovieInfoRepository.findByCastMemberAfter ignoring case",
+                new IndexProbe(MovieInfo.class, castMemberQuery().collation(MovieInfoRepositoryCustom.CAST_MEMBER_IGNORE_CASE)));
+        return probes;
+    }
+
+    private Mono<Void> checkQueryPlans() {
+        return Flux.fromIterable(queryProbes().entrySet())
+                .concatMap(probe -> explain(probe.getValue())
+                        .map(explanation -> explanation.get("queryPlanner", Document.class).get("winningPlan"))
+                        .filter(MongoIndexInitializer::hasCollectionScan)
+                        .doOnNext(winningPlan -> reportCollectionScan(probe.getKey(), winningPlan)))
+                .then();
+    }
+
+    private Mono<Document> explain(IndexProbe probe) {
+        MongoPersistentEntity<?> entity = mongoMappingContext.getRequiredPersistentEntity(probe.getEntityType());
+
+        return reactiveMongoTemplate.getCollection(entity.getCollection())
+                .flatMap(collection -> Mono.from(collection.find(probe.getQuery().getQueryObject())
+                        .sort(probe.getQuery().getSortObject())
+                        .collation(probe.getQuery().getCollation().map(Collation::toMongoCollation).orElse(null))
+                        .explain()));
+    }
+
+    private void reportCollectionScan(String queryName, Object winningPlan) {
+        String message = "Query " + queryName + " runs as a COLLSCAN, declare an index for it. Winning plan : " + winningPlan;
+
+        if (collscanCheck == CollscanCheck.FAIL) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    private static boolean hasCollectionScan(Object planNode) {
+        if (planNode instanceof Document) {
+            Document document = (Document) planNode;
+            if ("COLLSCAN".equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(MongoIndexInitializer::hasCollectionScan);
+        }
+        if (planNode instanceof List) {
+            return ((List<?>) planNode).stream().anyMatch(MongoIndexInitializer::hasCollectionScan);
+        }
+        return false;
+    }
+
+    static final class IndexProbe {
+        private final Class<?> entityType;
+        private final Query query;
+
+        IndexProbe(Class<?> entityType, Query query) {
+            this.entityType = entityType;
+            this.query = query;
+        }
+
+        Class<?> getEntityType() {
+            return entityType;
+        }
+
+        Query getQuery() {
+            return query;
+        }
+    }
+}
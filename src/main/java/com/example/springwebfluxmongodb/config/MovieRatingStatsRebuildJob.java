@@ -0,0 +1,53 @@
+package com.example.springwebfluxmongodb.config;
+
+import com.example.springwebfluxmongodb.repository.MovieRatingStatsRepository;
+import com.example.springwebfluxmongodb.repository.ReviewReactiveRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Recomputes the movie rating stats from the reviews, on the reviews.stats.rebuildCron schedule to correct the
+ * drift of the incremental updates (when reviews.stats.rebuildEnabled is not false, see SchedulingConfig), and at startup when reviews exist without stats (reviews written before the
+ * stats were introduced).
+ */
+@Slf4j
+@Component
+public class MovieRatingStatsRebuildJob {
+
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final ReviewReactiveRepository reviewReactiveRepository;
+
+    public MovieRatingStatsRebuildJob(MovieRatingStatsRepository movieRatingStatsRepository,
+                                      ReviewReactiveRepository reviewReactiveRepository) {
+        this.movieRatingStatsRepository = movieRatingStatsRepository;
+        this.reviewReactiveRepository = reviewReactiveRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfMissing() {
+        this.movieRatingStatsRepository.count()
+                .zipWith(this.reviewReactiveRepository.count())
+                .filter(counts -> counts.getT1() == 0 && counts.getT2() > 0)
+                .flatMap(counts -> rebuild())
+                .subscribe();
+    }
+
+    @Scheduled(cron = "${reviews.stats.rebuildCron:0 0 4 * * *}")
+    public void scheduledRebuild() {
+        rebuild().subscribe();
+    }
+
+    Mono<Void> rebuild() {
+        long start = System.nanoTime();
+        return this.movieRatingStatsRepository.rebuildAll()
+                .doOnSuccess(done -> log.info("Rebuilt the movie rating stats in {} ms", Duration.ofNanos(System.nanoTime() - start).toMillis()))
+                .doOnError(error -> log.error("Rebuild of the movie rating stats failed : {}", error.getMessage(), error))
+                .onErrorResume(error -> Mono.empty());
+    }
+}
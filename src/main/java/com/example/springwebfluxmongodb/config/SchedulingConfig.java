@@ -0,0 +1,14 @@
+package com.example.springwebfluxmongodb.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the @Scheduled jobs, reviews.stats.rebuildEnabled=false turns them off, e.g. on all nodes but one.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "reviews.stats.rebuildEnabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,41 @@
+package com.example.springwebfluxmongodb.config;
+
+import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
+import com.example.springwebfluxmongodb.search.InMemoryMovieInfoIndex;
+import com.example.springwebfluxmongodb.search.MongoTextMovieInfoSearch;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SearchConfig {
+
+    /**
+     * Values of movieInfo.search.mode, each one selects one of the beans below.
+     */
+    public enum SearchMode {
+        /**
+         * Search with the text index of the movieInfo collection.
+         */
+        MONGO,
+        /**
+         * Search an inverted index held in memory by every node, built at startup.
+         */
+        MEMORY
+    }
+
+    /**
+     * Declared with its own type, it is also one of the movie info change listeners.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "movieInfo.search.mode", havingValue = "memory")
+    public InMemoryMovieInfoIndex inMemoryMovieInfoIndex(MovieInfoRepository movieInfoRepository) {
+        return new InMemoryMovieInfoIndex(movieInfoRepository);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "movieInfo.search.mode", havingValue = "mongo", matchIfMissing = true)
+    public MongoTextMovieInfoSearch mongoTextMovieInfoSearch(MovieInfoRepository movieInfoRepository) {
+        return new MongoTextMovieInfoSearch(movieInfoRepository);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.springwebfluxmongodb.config;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.MovieInfoChange;
+import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.stream.Broadcaster;
+import com.example.springwebfluxmongodb.stream.EventStream;
+import com.example.springwebfluxmongodb.stream.LocalEventStream;
+import com.example.springwebfluxmongodb.stream.MongoEventStream;
+import com.example.springwebfluxmongodb.stream.StreamTopics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+@Configuration
+public class StreamConfig {
+
+    public enum StreamMode {
+        /**
+         * Subscribers see the writes of the node they are connected to.
+         */
+        LOCAL,
+        /**
+         * Subscribers see the writes of every node, through a capped collection per stream.
+         */
+        MONGO
+    }
+
+    @Value("${stream.mode:local}")
+    private StreamMode streamMode;
+
+    @Value("${stream.mongo.cappedSize:16MB}")
+    private DataSize cappedSize;
+
+    @Value("${stream.mongo.maxDocuments:10000}")
+    private long maxDocuments;
+
+    @Value("${stream.broadcast.bufferSize:256}")
+    private int bufferSize;
+
+    @Value("${stream.broadcast.overflowPolicy:drop-oldest}")
+    private Broadcaster.OverflowPolicy overflowPolicy;
+
+    @Value("${stream.broadcast.heartbeatInterval:15s}")
+    private Duration heartbeatInterval;
+
+    @Value("${stream.broadcast.idleTimeout:60s}")
+    private Duration idleTimeout;
+
+    @Value("${stream.broadcast.replayBufferSize:1024}")
+    private int replayBufferSize;
+
+    @Bean
+    public Broadcaster<MovieInfo> movieInfoBroadcaster(ObjectProvider<MeterRegistry> meterRegistry) {
+        return broadcaster("movieInfos", meterRegistry, StreamTopics::of);
+    }
+
+    @Bean
+    public Broadcaster<Review> reviewBroadcaster(ObjectProvider<MeterRegistry> meterRegistry) {
+        return broadcaster("reviews", meterRegistry, StreamTopics::of);
+    }
+
+    @Bean
+    public Broadcaster<MovieInfoChange> movieInfoChangeBroadcaster(ObjectProvider<MeterRegistry> meterRegistry) {
+        return broadcaster("movieInfoChanges", meterRegistry, change -> List.of());
+    }
+
+    @Bean
+    public EventStream<MovieInfo> movieInfoEventStream(Broadcaster<MovieInfo> movieInfoBroadcaster,
+                                                       ObjectProvider<ReactiveMongoTemplate> reactiveMongoTemplate) {
+        return eventStream("movieInfoEvents", MovieInfo.class, movieInfoBroadcaster, reactiveMongoTemplate);
+    }
+
+    /**
+     * Every insert, update and delete of a movie info, for the in-memory indexes of the nodes.
+     */
+    @Bean
+    public EventStream<MovieInfoChange> movieInfoChangeStream(Broadcaster<MovieInfoChange> movieInfoChangeBroadcaster,
+                                                              ObjectProvider<ReactiveMongoTemplate> reactiveMongoTemplate) {
+        return eventStream("movieInfoChanges", MovieInfoChange.class, movieInfoChangeBroadcaster, reactiveMongoTemplate);
+    }
+
+    @Bean
+    public EventStream<Review> reviewEventStream(Broadcaster<Review> reviewBroadcaster,
+                                                 ObjectProvider<ReactiveMongoTemplate> reactiveMongoTemplate) {
+        return eventStream("reviewEvents", Review.class, reviewBroadcaster, reactiveMongoTemplate);
+    }
+
+    private <T> Broadcaster<T> broadcaster(String name, ObjectProvider<MeterRegistry> meterRegistry,
+                                           Function<T, Collection<String>> topicsOf) {
+        return new Broadcaster<>(name, bufferSize, overflowPolicy, heartbeatInterval, idleTimeout, replayBufferSize,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new), topicsOf);
+    }
+
+    private <T> EventStream<T> eventStream(String collectionName, Class<T> eventType, Broadcaster<T> broadcaster,
+                                           ObjectProvider<ReactiveMongoTemplate> reactiveMongoTemplate) {
+        if (streamMode == StreamMode.MONGO) {
+            return new MongoEventStream<>(reactiveMongoTemplate.getObject(), collectionName, eventType,
+                    cappedSize.toBytes(), maxDocuments, broadcaster);
+        }
+        return new LocalEventStream<>(broadcaster);
+    }
+}
@@ -1,14 +1,80 @@
 package com.example.springwebfluxmongodb.config;
 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.util.concurrent.TimeUnit;
 
 @Configuration
-public class WebClientConfig {
+@EnableConfigurationProperties(WebClientProperties.class)
+public class WebClientConfig implements DisposableBean {
+
+    private static final String READ_TIMEOUT_HANDLER = "restClientReadTimeout";
+    private static final String WRITE_TIMEOUT_HANDLER = "restClientWriteTimeout";
+
+    private LoopResources loopResources;
+
+    /**
+     * Pool of the rest clients. Its active, idle and pending connection gauges are published as the
+     * reactor.netty.connection.provider.* metrics.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider restClientConnectionProvider(WebClientProperties properties) {
+        return ConnectionProvider.builder("restClient")
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireMaxCount(properties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(properties.getPendingAcquireTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .maxLifeTime(properties.getMaxLifeTime())
+                .evictInBackground(properties.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
 
+    /**
+     * The read and write timeout handlers only live for the exchange, a pooled connection must not time out
+     * while it waits idle for the next request.
+     */
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient webClient(WebClient.Builder builder, ConnectionProvider restClientConnectionProvider,
+                               WebClientProperties properties) {
+        HttpClient httpClient = HttpClient.create(restClientConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout())
+                .doOnRequest((request, connection) -> connection
+                        .addHandlerLast(READ_TIMEOUT_HANDLER, new ReadTimeoutHandler(properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                        .addHandlerLast(WRITE_TIMEOUT_HANDLER, new WriteTimeoutHandler(properties.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)))
+                .doOnResponse((response, connection) -> connection.removeHandler(WRITE_TIMEOUT_HANDLER))
+                .doAfterResponseSuccess((response, connection) -> connection.removeHandler(READ_TIMEOUT_HANDLER));
+
+        if (properties.isH2c()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        if (properties.getEventLoopThreads() > 0) {
+            this.loopResources = LoopResources.create("restClient", properties.getEventLoopThreads(), true);
+            httpClient = httpClient.runOn(this.loopResources);
+        }
+
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        if (this.loopResources != null) {
+            this.loopResources.dispose();
+        }
     }
 }
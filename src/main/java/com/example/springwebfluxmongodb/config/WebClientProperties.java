@@ -0,0 +1,68 @@
+package com.example.springwebfluxmongodb.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Connection pool, timeouts and protocol of the WebClient used by the rest clients.
+ */
+@Data
+@ConfigurationProperties(prefix = "rest-client.http")
+public class WebClientProperties {
+
+    /**
+     * Connections per remote host, beyond this acquisitions wait in the pending queue.
+     */
+    private int maxConnections = 500;
+
+    /**
+     * Acquisitions allowed to wait for a connection, the next one fails right away.
+     */
+    private int pendingAcquireMaxCount = 1000;
+
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Idle connections are closed after this time, before the remote side or a proxy drops them.
+     */
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    /**
+     * Connections are recycled after this time, so that new downstream instances get traffic.
+     */
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+
+    /**
+     * Interval of the background eviction of idle and expired connections, zero evicts on acquire only.
+     */
+    private Duration evictInBackground = Duration.ofSeconds(30);
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Maximum time without reading any data while a response is being received.
+     */
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Maximum time for a write of the request to complete.
+     */
+    private Duration writeTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Maximum time between sending the request and receiving the response headers.
+     */
+    private Duration responseTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Offer HTTP/2 over cleartext, falling back to HTTP/1.1 when the downstream does not upgrade.
+     */
+    private boolean h2c = false;
+
+    /**
+     * Threads of a dedicated event loop for the client, 0 shares the event loop of the server.
+     */
+    private int eventLoopThreads = 0;
+}
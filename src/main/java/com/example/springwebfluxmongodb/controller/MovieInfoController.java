@@ -1,17 +1,35 @@
 package com.example.springwebfluxmongodb.controller;
 
+import com.example.springwebfluxmongodb.domain.BulkInsertResult;
+import com.example.springwebfluxmongodb.domain.CursorPage;
 import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.exceptions.InvalidQueryParameterException;
+import com.example.springwebfluxmongodb.instrumentation.ReactiveInstrumentation;
+import com.example.springwebfluxmongodb.search.MovieInfoSearch;
+import com.example.springwebfluxmongodb.search.MovieNameSuggester;
+import com.example.springwebfluxmongodb.search.SearchText;
 import com.example.springwebfluxmongodb.service.MovieInfoService;
+import com.example.springwebfluxmongodb.stream.EventStream;
+import com.example.springwebfluxmongodb.stream.NdjsonStreams;
+import com.example.springwebfluxmongodb.stream.ServerSentEvents;
+import com.example.springwebfluxmongodb.stream.StreamTopics;
+import com.example.springwebfluxmongodb.util.ETags;
+import com.example.springwebfluxmongodb.util.FieldSelection;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
 @RequestMapping("/v1")
@@ -20,53 +38,261 @@ public class MovieInfoController {
 
     private final MovieInfoService movieInfoService;
 
-    Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().latest();
+    private final EventStream<MovieInfo> movieInfoEventStream;
 
-    public MovieInfoController(MovieInfoService movieInfoService) {
+    private final ReactiveInstrumentation instrumentation;
+
+    private final ObjectMapper objectMapper;
+
+    private final MovieInfoSearch movieInfoSearch;
+
+    private final MovieNameSuggester movieNameSuggester;
+
+    @Value("${pagination.defaultLimit:100}")
+    private int defaultPageLimit;
+
+    @Value("${pagination.maxLimit:1000}")
+    private int maxPageLimit;
+
+    @Value("${movieInfo.suggest.defaultLimit:10}")
+    private int defaultSuggestLimit;
+
+    @Value("${movieInfo.suggest.maxLimit:50}")
+    private int maxSuggestLimit;
+
+    public MovieInfoController(MovieInfoService movieInfoService, EventStream<MovieInfo> movieInfoEventStream,
+                               ReactiveInstrumentation instrumentation, ObjectMapper objectMapper,
+                               MovieInfoSearch movieInfoSearch, MovieNameSuggester movieNameSuggester) {
         this.movieInfoService = movieInfoService;
+        this.movieInfoEventStream = movieInfoEventStream;
+        this.instrumentation = instrumentation;
+        this.objectMapper = objectMapper;
+        this.movieInfoSearch = movieInfoSearch;
+        this.movieNameSuggester = movieNameSuggester;
     }
 
     @PostMapping("/movieInfos")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
-        return this.movieInfoService.addMovieInfo(movieInfo)
-                .doOnNext(savedMovieInfo -> movieInfoSink.tryEmitNext(savedMovieInfo));
+        return this.instrumentation.mono("movieInfos.add", this.movieInfoService.addMovieInfo(movieInfo)
+                .flatMap(savedMovieInfo -> this.movieInfoEventStream.publish(savedMovieInfo).thenReturn(savedMovieInfo)));
+    }
+
+    /**
+     * Bulk ingest of newline delimited movie infos. Every element is validated like {@link #addMovieInfo}
+     * and answered with one result line, in request order, as soon as its batch is written.
+     * Created movie infos are published to the movie info stream before their result line is sent.
+     */
+    @PostMapping(value = "/movieInfos/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkInsertResult> addMovieInfos(@RequestBody Flux<MovieInfo> movieInfos) {
+        return this.instrumentation.flux("movieInfos.bulk", this.movieInfoService.addMovieInfos(movieInfos)
+                .concatMap(result -> result.getStatus() == BulkInsertResult.Status.CREATED
+                        ? this.movieInfoEventStream.publish(result.getMovieInfo()).thenReturn(result)
+                        : Mono.just(result)));
     }
 
+    /**
+     * Stream of added movie infos, optionally only those released in the given year and/or with the given name.
+     * Filtered subscriptions are routed by topic, other movie infos are never sent to them. Empty heartbeat lines
+     * keep a quiet stream open, see {@link NdjsonStreams}.
+     */
     @GetMapping(value = "/movieInfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> getAllMovieInfoStream() {
-        return this.movieInfoSink.asFlux().log();
+    public Flux<DataBuffer> getAllMovieInfoStream(@RequestParam(value = "year", required = false) Integer year,
+                                                  @RequestParam(value = "name", required = false) String movieName) {
+        return this.instrumentation.flux("movieInfos.stream", NdjsonStreams.of(this.movieInfoEventStream,
+                this.movieInfoEventStream.subscribe(movieInfoTopic(year, movieName))
+                        .filter(movieInfo -> movieName == null || year == null || year.equals(movieInfo.getYear())),
+                this.objectMapper));
     }
 
+    /**
+     * Server-sent events variant of {@link #getAllMovieInfoStream}, resumable with the Last-Event-ID header.
+     */
+    @GetMapping(value = "/movieInfos/stream/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MovieInfo>> getAllMovieInfoSseStream(@RequestParam(value = "year", required = false) Integer year,
+                                                                     @RequestParam(value = "name", required = false) String movieName,
+                                                                     @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return this.instrumentation.flux("movieInfos.stream.sse", Flux.defer(() -> ServerSentEvents.of(this.movieInfoEventStream,
+                        movieInfoTopic(year, movieName), lastEventId == null ? null : parseLastEventId(lastEventId)))
+                .filter(event -> event.data() == null || movieName == null || year == null || year.equals(event.data().getYear())));
+    }
+
+    private static Long parseLastEventId(String lastEventId) {
+        try {
+            return Long.valueOf(lastEventId);
+        } catch (NumberFormatException exception) {
+            throw new InvalidQueryParameterException("Last-Event-ID must be a number");
+        }
+    }
+
+    /**
+     * A name subscription is the most selective, the year is then checked on the few movie infos it gets.
+     */
+    private static String movieInfoTopic(Integer year, String movieName) {
+        if (movieName != null) {
+            return StreamTopics.movieInfoName(movieName);
+        }
+        return year == null ? null : StreamTopics.movieInfoYear(year);
+    }
+
+    /**
+     * Every answer is a bounded page or a single movie info, tagged with a hash of its JSON. An If-None-Match hit is
+     * answered with 304 and no body.
+     * A year or castMember lists the movie infos released before that year or that cast member appears in,
+     * paginated like the unfiltered list. A name looks up a single movie info, limit and after are rejected with it.
+     */
     @GetMapping("/movieInfos")
-    public Flux<MovieInfo> getAllMovies(@RequestParam(value = "year", required = false) Integer year,
-                                        @RequestParam(value = "name", required = false) String movieName) {
+    public Mono<ResponseEntity<byte[]>> getAllMovies(@RequestParam(value = "year", required = false) Integer year,
+                                                              @RequestParam(value = "name", required = false) String movieName,
+                                                              @RequestParam(value = "castMember", required = false) String castMember,
+                                                              @RequestParam(value = "limit", required = false) Integer limit,
+                                                              @RequestParam(value = "after", required = false) String afterCursor,
+                                                              @RequestParam(value = "fields", required = false) String fields) {
         log.info("Year is {} ", year);
+        FieldSelection fieldSelection = FieldSelection.parse(fields, MovieInfo.class, "movieInfoId");
+
+        if (year == null && movieName != null) {
+            if (limit != null || afterCursor != null) {
+                throw new InvalidQueryParameterException("limit and after do not apply to a name lookup");
+            }
+            return this.instrumentation.mono("movieInfos.byName", this.movieInfoService.getMovieByName(movieName, fieldSelection)
+                    .map(List::of)
+                    .defaultIfEmpty(List.of())
+                    .flatMap(movieInfos -> toJsonResponse(ResponseEntity.ok(), movieInfos)));
+        }
 
+        int pageLimit = CursorPage.resolveLimit(limit, defaultPageLimit, maxPageLimit);
         if (year != null) {
-            return this.movieInfoService.getMoviesBeforeYear(year).log();
-        } else if (movieName != null) {
-            return this.movieInfoService.getMovieByName(movieName).flatMapMany(Flux::just).log();
+            return this.instrumentation.mono("movieInfos.byYear",
+                    this.movieInfoService.findPageBeforeYear(year, afterCursor, pageLimit, fieldSelection)
+                            .flatMap(this::toPageResponse));
+        } else if (castMember != null) {
+            return this.instrumentation.mono("movieInfos.byCastMember",
+                    this.movieInfoService.findPageByCastMember(castMember, afterCursor, pageLimit, fieldSelection)
+                            .flatMap(this::toPageResponse));
         }
-        return this.movieInfoService.findAll().log();
+        return this.instrumentation.mono("movieInfos.page", this.movieInfoService.findPage(afterCursor, pageLimit, fieldSelection)
+                .flatMap(this::toPageResponse));
     }
 
+    private Mono<ResponseEntity<byte[]>> toPageResponse(CursorPage<MovieInfo> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNext());
+        }
+        return toJsonResponse(response, page.getItems());
+    }
+
+    /**
+     * Movie infos whose name or cast contains any word of q, most relevant first. Results are ranked, not keyed,
+     * so the cursor holds the offset of the next page.
+     */
+    @GetMapping("/movieInfos/search")
+    public Mono<ResponseEntity<byte[]>> searchMovieInfos(@RequestParam("q") String query,
+                                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                                         @RequestParam(value = "after", required = false) String afterCursor) {
+        return this.instrumentation.mono("movieInfos.search", Mono.defer(() -> {
+            if (query.isBlank()) {
+                throw new InvalidQueryParameterException("q must not be blank");
+            }
+            int pageLimit = CursorPage.resolveLimit(limit, defaultPageLimit, maxPageLimit);
+            int offset = decodeOffset(afterCursor);
+
+            return this.movieInfoSearch.search(query, offset, pageLimit + 1)
+                    .collectList()
+                    .flatMap(movieInfos -> {
+                        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                        if (movieInfos.size() > pageLimit) {
+                            response.header(CursorPage.NEXT_CURSOR_HEADER, CursorPage.encodeCursor(String.valueOf(offset + pageLimit)));
+                        }
+                        return toJsonResponse(response, movieInfos.subList(0, Math.min(pageLimit, movieInfos.size())));
+                    });
+        }));
+    }
+
+    /**
+     * Movie infos whose name starts with the prefix, answered from memory.
+     */
+    @GetMapping("/movieInfos/suggest")
+    public Mono<ResponseEntity<byte[]>> suggestMovieInfos(@RequestParam("prefix") String prefix,
+                                                          @RequestParam(value = "limit", required = false) Integer limit) {
+        return this.instrumentation.mono("movieInfos.suggest", Mono.defer(() -> {
+            if (SearchText.normalize(prefix).isBlank()) {
+                throw new InvalidQueryParameterException("prefix must not be blank");
+            }
+            int suggestLimit = CursorPage.resolveLimit(limit, defaultSuggestLimit, maxSuggestLimit);
+            return toJsonResponse(ResponseEntity.ok(), this.movieNameSuggester.suggest(prefix, suggestLimit));
+        }));
+    }
+
+    private static int decodeOffset(String afterCursor) {
+        String offset = CursorPage.decodeCursor(afterCursor);
+        if (offset == null) {
+            return 0;
+        }
+
+        try {
+            return Math.max(0, Integer.parseInt(offset));
+        } catch (NumberFormatException e) {
+            throw new InvalidQueryParameterException("Invalid page cursor : " + afterCursor);
+        }
+    }
+
+    /**
+     * Serialize the body once, to tag it and to send it. Only for bodies of a bounded size, single resources and
+     * pages of at most the max page limit, an unbounded list must not be collected just to be tagged.
+     */
+    private Mono<ResponseEntity<byte[]>> toJsonResponse(ResponseEntity.BodyBuilder response, Object body) {
+        return Mono.fromCallable(() -> this.objectMapper.writeValueAsBytes(body))
+                .map(json -> response.eTag(ETags.ofContent(json))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(json));
+    }
+
+    /**
+     * A whole movie info is tagged with its version, the same entity tag PUT and PATCH expect in If-Match,
+     * so an If-None-Match hit is answered with 304 without serializing anything. A sparse fieldset is tagged
+     * with a hash of its JSON.
+     */
     @GetMapping("/movieInfos/{id}")
-    public Mono<MovieInfo> getMovieInfoById(@PathVariable("id") String movieInfoId) {
-        return this.movieInfoService.findById(movieInfoId).log();
+    public Mono<ResponseEntity<?>> getMovieInfoById(@PathVariable("id") String movieInfoId,
+                                                    @RequestParam(value = "fields", required = false) String fields) {
+        FieldSelection fieldSelection = FieldSelection.parse(fields, MovieInfo.class, "movieInfoId");
+        return this.instrumentation.mono("movieInfos.get", this.movieInfoService.findById(movieInfoId, fieldSelection)
+                .<ResponseEntity<?>>flatMap(movieInfo -> fieldSelection.isAll()
+                        ? Mono.just(toVersionedResponse(movieInfo))
+                        : toJsonResponse(ResponseEntity.ok(), movieInfo)));
     }
 
     @PutMapping("/movieInfos/{id}")
-    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updatedMovieInfo, @PathVariable("id") String movieInfoId) {
-        return this.movieInfoService.updateMovieInfo(updatedMovieInfo, movieInfoId)
-                .map(ResponseEntity.ok()::body)
-                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updatedMovieInfo, @PathVariable("id") String movieInfoId,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return this.instrumentation.mono("movieInfos.update",
+                Mono.defer(() -> this.movieInfoService.updateMovieInfo(updatedMovieInfo, movieInfoId, ETags.parseIfMatch(ifMatch)))
+                        .map(this::toVersionedResponse)
+                        .switchIfEmpty(Mono.just(ResponseEntity.notFound().build())));
+    }
+
+    @PatchMapping("/movieInfos/{id}")
+    public Mono<ResponseEntity<MovieInfo>> patchMovieInfo(@RequestBody MovieInfo partialMovieInfo, @PathVariable("id") String movieInfoId,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return this.instrumentation.mono("movieInfos.patch",
+                Mono.defer(() -> this.movieInfoService.patchMovieInfo(partialMovieInfo, movieInfoId, ETags.parseIfMatch(ifMatch)))
+                        .map(this::toVersionedResponse)
+                        .switchIfEmpty(Mono.just(ResponseEntity.notFound().build())));
+    }
+
+    private ResponseEntity<MovieInfo> toVersionedResponse(MovieInfo movieInfo) {
+        return ResponseEntity.ok()
+                .eTag(ETags.of(movieInfo.getVersion()))
+                .body(movieInfo);
     }
 
     @DeleteMapping("/movieInfos/{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<Void> deleteMovieById(@PathVariable("id") String movieInfoId) {
-        return this.movieInfoService.deleteById(movieInfoId).log();
+    public Mono<ResponseEntity<Void>> deleteMovieById(@PathVariable("id") String movieInfoId) {
+        return this.instrumentation.mono("movieInfos.delete", this.movieInfoService.deleteById(movieInfoId)
+                .map(deletedCount -> deletedCount > 0
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build()));
     }
 }
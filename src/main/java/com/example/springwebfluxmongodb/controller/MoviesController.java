@@ -1,41 +1,78 @@
 package com.example.springwebfluxmongodb.controller;
 
-import com.example.springwebfluxmongodb.client.MoviesInfoRestClient;
-import com.example.springwebfluxmongodb.client.ReviewsRestClient;
+import com.example.springwebfluxmongodb.domain.CursorPage;
 import com.example.springwebfluxmongodb.domain.Movie;
-import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.domain.TopRatedMovie;
+import com.example.springwebfluxmongodb.exceptions.InvalidQueryParameterException;
+import com.example.springwebfluxmongodb.instrumentation.ReactiveInstrumentation;
+import com.example.springwebfluxmongodb.service.MovieService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
 
-//TODO
 @RestController
 @RequestMapping("/v1/movies")
 public class MoviesController {
 
-    private MoviesInfoRestClient moviesInfoRestClient;
-    private ReviewsRestClient reviewsRestClient;
+    private final MovieService movieService;
 
-    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
-        this.moviesInfoRestClient = moviesInfoRestClient;
-        this.reviewsRestClient = reviewsRestClient;
+    private final ReactiveInstrumentation instrumentation;
+
+    @Value("${movies.batch.maxIds:500}")
+    private int maxIds;
+
+    @Value("${movies.top.defaultLimit:100}")
+    private int defaultTopLimit;
+
+    @Value("${movies.top.maxLimit:1000}")
+    private int maxTopLimit;
+
+    @Value("${movies.top.defaultMinReviews:20}")
+    private long defaultMinReviews;
+
+    public MoviesController(MovieService movieService, ReactiveInstrumentation instrumentation) {
+        this.movieService = movieService;
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Highest average rating first, among the movies with at least minReviews reviews, optionally only those
+     * released in the given year. Computed by the database and cached, see movies.top.refreshAfter.
+     */
+    @GetMapping("/top")
+    public Flux<TopRatedMovie> retrieveTopRatedMovies(@RequestParam(value = "limit", required = false) Integer limit,
+                                                      @RequestParam(value = "minReviews", required = false) Long minReviews,
+                                                      @RequestParam(value = "year", required = false) Integer year) {
+        if (minReviews != null && minReviews < 1) {
+            return Flux.error(new InvalidQueryParameterException("minReviews must be greater than 0"));
+        }
+        return Flux.defer(() -> this.instrumentation.flux("movies.top", this.movieService.getTopRatedMovies(
+                CursorPage.resolveLimit(limit, defaultTopLimit, maxTopLimit),
+                minReviews == null ? defaultMinReviews : minReviews,
+                year)));
     }
 
     @GetMapping("/{id}")
     public Mono<Movie> retrieveMovieInfoById(@PathVariable("id") String movieId) {
-        moviesInfoRestClient.retrieveMovieInfo(movieId)
-                .flatMap(movieInfo -> {
-                    Mono<List<Review>> reviewsListMono = reviewsRestClient
-                            .retrieveReviews(movieInfo.getMovieInfoId()).collectList();
-
-                    return reviewsListMono.map(
-                            reviews -> new Movie(movieInfo, reviews));
+        return this.instrumentation.mono("movies.get", this.movieService.getMovieById(movieId));
+    }
 
-                });
-        return null;
+    /**
+     * Several movies in one request (e.g. ?ids=1,2,3), streamed as newline delimited json in the order of the ids.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMoviesByIds(@RequestParam("ids") List<String> movieIds) {
+        if (movieIds.size() > maxIds) {
+            return Flux.error(new InvalidQueryParameterException("At most " + maxIds + " ids can be requested at once"));
+        }
+        return this.instrumentation.flux("movies.batch", this.movieService.getMoviesByIds(movieIds));
     }
 }
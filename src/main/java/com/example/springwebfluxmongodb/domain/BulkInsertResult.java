@@ -0,0 +1,39 @@
+package com.example.springwebfluxmongodb.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one element of a bulk ingest, index is the position of the element in the request body.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkInsertResult {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    private long index;
+    private String movieInfoId;
+    private Status status;
+    private String error;
+
+    /**
+     * The inserted movie info, kept for publishing to the movie info stream, never written to the response.
+     */
+    @JsonIgnore
+    private MovieInfo movieInfo;
+
+    public static BulkInsertResult created(long index, MovieInfo movieInfo) {
+        return new BulkInsertResult(index, movieInfo.getMovieInfoId(), Status.CREATED, null, movieInfo);
+    }
+
+    public static BulkInsertResult failed(long index, String error) {
+        return new BulkInsertResult(index, null, Status.FAILED, error, null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.springwebfluxmongodb.domain;
+
+import com.example.springwebfluxmongodb.exceptions.InvalidQueryParameterException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One keyset page of documents plus the opaque cursor pointing after its last element.
+ * The cursor is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private List<T> items;
+    private String next;
+
+    /**
+     * Build a page from a fetch of (limit + 1) documents, the extra one only tells whether a next page exists.
+     * @param fetched - documents read with limit + 1
+     * @param limit - requested page size
+     * @param idExtractor - the sort key of a document
+     * @return CursorPage<T>
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, String> idExtractor) {
+        if (fetched.size() <= limit) {
+            return new CursorPage<>(fetched, null);
+        }
+
+        List<T> items = fetched.subList(0, limit);
+        return new CursorPage<>(items, encodeCursor(idExtractor.apply(items.get(limit - 1))));
+    }
+
+    public static String encodeCursor(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decodeCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQueryParameterException("Invalid page cursor : " + cursor);
+        }
+    }
+
+    public static int resolveLimit(Integer requestedLimit, int defaultLimit, int maxLimit) {
+        if (requestedLimit == null) {
+            return defaultLimit;
+        }
+        if (requestedLimit < 1) {
+            throw new InvalidQueryParameterException("limit must be greater than 0");
+        }
+        return Math.min(requestedLimit, maxLimit);
+    }
+
+    public static int resolveLimit(String requestedLimit, int defaultLimit, int maxLimit) {
+        if (requestedLimit == null) {
+            return defaultLimit;
+        }
+
+        try {
+            return resolveLimit(Integer.valueOf(requestedLimit), defaultLimit, maxLimit);
+        } catch (NumberFormatException e) {
+            throw new InvalidQueryParameterException("limit must be a number : " + requestedLimit);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.springwebfluxmongodb.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.validation.annotation.Validated;
 
@@ -17,19 +22,31 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+@CompoundIndex(name = "cast_id", def = "{'cast': 1, '_id': 1}")
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class MovieInfo {
 
     @Id
     private String movieInfoId;
 
+    @Indexed
+    @TextIndexed(weight = 3)
     @NotBlank(message = "Movie info name must be present")
     private String name;
 
+    @Indexed
     @NotNull
     @Positive(message = "Year must be greater than 0")
     private Integer year;
 
-
+    @TextIndexed
     private List<@NotBlank(message = "Movie cast must be present") String> cast;
     private LocalDate releaseDate;
+
+    @Version
+    private Long version;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate releaseDate) {
+        this(movieInfoId, name, year, cast, releaseDate, null);
+    }
 }
@@ -0,0 +1,26 @@
+package com.example.springwebfluxmongodb.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A movie info write, as stored when it was inserted or updated, or a null movie info when it was deleted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoChange {
+
+    private String movieInfoId;
+
+    private MovieInfo movieInfo;
+
+    public static MovieInfoChange saved(MovieInfo movieInfo) {
+        return new MovieInfoChange(movieInfo.getMovieInfoId(), movieInfo);
+    }
+
+    public static MovieInfoChange deleted(String movieInfoId) {
+        return new MovieInfoChange(movieInfoId, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.springwebfluxmongodb.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A movie info name completing a typed prefix.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoSuggestion {
+
+    private String movieInfoId;
+
+    private String name;
+}
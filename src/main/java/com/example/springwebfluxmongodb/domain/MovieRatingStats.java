@@ -0,0 +1,47 @@
+package com.example.springwebfluxmongodb.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+
+/**
+ * Rating aggregate of one movie, kept up to date by every review write so that it is read in O(1).
+ * The histogram counts the ratings per whole number, "7" holds the ratings from 7 included to 8 excluded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieRatingStats {
+
+    @Id
+    private Long movieInfoId;
+
+    private long count;
+
+    private double sum;
+
+    private Double min;
+
+    private Double max;
+
+    private Map<String, Long> histogram;
+
+    public static MovieRatingStats empty(Long movieInfoId) {
+        return new MovieRatingStats(movieInfoId, 0, 0.0, null, null, Map.of());
+    }
+
+    public static String histogramBucket(double rating) {
+        return String.valueOf((long) Math.floor(rating));
+    }
+
+    public Double getAverage() {
+        return count == 0 ? null : sum / count;
+    }
+}
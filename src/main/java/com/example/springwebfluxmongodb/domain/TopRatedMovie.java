@@ -0,0 +1,20 @@
+package com.example.springwebfluxmongodb.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A movie info with the average rating and the number of its rated reviews.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopRatedMovie {
+
+    private MovieInfo movieInfo;
+
+    private Double averageRating;
+
+    private Long reviewCount;
+}
@@ -1,6 +1,10 @@
 package com.example.springwebfluxmongodb.exceptionHandler;
 
+import com.example.springwebfluxmongodb.exceptions.DownstreamUnavailableException;
+import com.example.springwebfluxmongodb.exceptions.InvalidQueryParameterException;
 import com.example.springwebfluxmongodb.exceptions.MovieInfoClientException;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoDataException;
+import com.example.springwebfluxmongodb.exceptions.PreconditionFailedException;
 import com.example.springwebfluxmongodb.exceptions.ReviewDataException;
 import com.example.springwebfluxmongodb.exceptions.ReviewNotFoundException;
 import lombok.extern.slf4j.Slf4j;
@@ -41,6 +45,30 @@ public class GlobalErrorHandler implements ErrorWebExceptionHandler {
         return ResponseEntity.status(exception.getStatusCode()).body(exception.getMessage());
     }
 
+    @ExceptionHandler(InvalidQueryParameterException.class)
+    public ResponseEntity<String> handleInvalidQueryParameterException(InvalidQueryParameterException exception) {
+        log.error("Exception caught in HandleInvalidQueryParameterException : {} ", exception.getMessage(), exception);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(exception.getMessage());
+    }
+
+    @ExceptionHandler(MovieInfoDataException.class)
+    public ResponseEntity<String> handleMovieInfoDataException(MovieInfoDataException exception) {
+        log.error("Exception caught in HandleMovieInfoDataException : {} ", exception.getMessage(), exception);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(exception.getMessage());
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<String> handlePreconditionFailedException(PreconditionFailedException exception) {
+        log.error("Exception caught in HandlePreconditionFailedException : {} ", exception.getMessage(), exception);
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(exception.getMessage());
+    }
+
+    @ExceptionHandler(DownstreamUnavailableException.class)
+    public ResponseEntity<String> handleDownstreamUnavailableException(DownstreamUnavailableException exception) {
+        log.error("Exception caught in HandleDownstreamUnavailableException : {} ", exception.getMessage(), exception);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(exception.getMessage());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException exception) {
         log.error("Exception caught in HandleRuntimeException : {} ", exception.getMessage(), exception);
@@ -53,16 +81,26 @@ public class GlobalErrorHandler implements ErrorWebExceptionHandler {
         DataBufferFactory dataBufferFactory = exchange.getResponse().bufferFactory();
         DataBuffer errorMessage = dataBufferFactory.wrap(ex.getMessage().getBytes());
 
-        if (ex instanceof ReviewDataException) {
+        if (ex instanceof ReviewDataException || ex instanceof InvalidQueryParameterException) {
             exchange.getResponse().setStatusCode(HttpStatus.BAD_REQUEST);
             return exchange.getResponse().writeWith(Mono.just(errorMessage));
         }
 
+        if (ex instanceof PreconditionFailedException) {
+            exchange.getResponse().setStatusCode(HttpStatus.PRECONDITION_FAILED);
+            return exchange.getResponse().writeWith(Mono.just(errorMessage));
+        }
+
         if (ex instanceof ReviewNotFoundException) {
             exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
             return exchange.getResponse().writeWith(Mono.just(errorMessage));
         }
 
+        if (ex instanceof DownstreamUnavailableException) {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().writeWith(Mono.just(errorMessage));
+        }
+
         exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
         return exchange.getResponse().writeWith(Mono.just(errorMessage));
     }
@@ -0,0 +1,10 @@
+package com.example.springwebfluxmongodb.exceptions;
+
+public class DownstreamUnavailableException extends RuntimeException {
+    private String message;
+
+    public DownstreamUnavailableException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
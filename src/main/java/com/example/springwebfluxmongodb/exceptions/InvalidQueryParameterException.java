@@ -0,0 +1,10 @@
+package com.example.springwebfluxmongodb.exceptions;
+
+public class InvalidQueryParameterException extends RuntimeException {
+    private String message;
+
+    public InvalidQueryParameterException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.springwebfluxmongodb.exceptions;
+
+public class MovieInfoDataException extends RuntimeException {
+    private String message;
+
+    public MovieInfoDataException(String errorMessage) {
+        super(errorMessage);
+        this.message = errorMessage;
+    }
+}
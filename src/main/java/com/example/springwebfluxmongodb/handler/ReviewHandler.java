@@ -1,22 +1,46 @@
 package com.example.springwebfluxmongodb.handler;
 
+import com.example.springwebfluxmongodb.domain.CursorPage;
+import com.example.springwebfluxmongodb.domain.MovieRatingStats;
 import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.exceptions.InvalidQueryParameterException;
+import com.example.springwebfluxmongodb.exceptions.PreconditionFailedException;
 import com.example.springwebfluxmongodb.exceptions.ReviewDataException;
 import com.example.springwebfluxmongodb.exceptions.ReviewNotFoundException;
+import com.example.springwebfluxmongodb.instrumentation.ReactiveInstrumentation;
+import com.example.springwebfluxmongodb.repository.MovieRatingStatsRepository;
 import com.example.springwebfluxmongodb.repository.ReviewReactiveRepository;
+import com.example.springwebfluxmongodb.stream.EventStream;
+import com.example.springwebfluxmongodb.stream.NdjsonStreams;
+import com.example.springwebfluxmongodb.stream.ServerSentEvents;
+import com.example.springwebfluxmongodb.stream.StreamTopics;
+import com.example.springwebfluxmongodb.util.ETags;
+import com.example.springwebfluxmongodb.util.FieldSelection;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -30,18 +54,37 @@ public class ReviewHandler {
 
     private final ReviewReactiveRepository reviewReactiveRepository;
 
-    private Sinks.Many<Review> reviewsSink = Sinks.many().replay().latest();
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
 
-    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository) {
+    private final EventStream<Review> reviewEventStream;
+
+    private final ReactiveInstrumentation instrumentation;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${pagination.defaultLimit:100}")
+    private int defaultPageLimit;
+
+    @Value("${pagination.maxLimit:1000}")
+    private int maxPageLimit;
+
+    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository, MovieRatingStatsRepository movieRatingStatsRepository,
+                         EventStream<Review> reviewEventStream, ReactiveInstrumentation instrumentation, ObjectMapper objectMapper) {
         this.reviewReactiveRepository = reviewReactiveRepository;
+        this.movieRatingStatsRepository = movieRatingStatsRepository;
+        this.reviewEventStream = reviewEventStream;
+        this.instrumentation = instrumentation;
+        this.objectMapper = objectMapper;
     }
 
     public Mono<ServerResponse> addReview(ServerRequest serverRequest) {
-        return serverRequest.bodyToMono(Review.class)
+        return this.instrumentation.mono("reviews.add", serverRequest.bodyToMono(Review.class)
                 .doOnNext(this::validate)
+                .doOnNext(review -> review.setVersion(null))
                 .flatMap(this.reviewReactiveRepository::save)
-                .doOnNext(this.reviewsSink::tryEmitNext)
-                .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
+                .flatMap(savedReview -> addRating(savedReview).thenReturn(savedReview))
+                .flatMap(savedReview -> this.reviewEventStream.publish(savedReview).thenReturn(savedReview))
+                .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue));
     }
 
     private void validate(Review review) {
@@ -60,15 +103,37 @@ public class ReviewHandler {
     }
 
     public Mono<ServerResponse> getAllReviews(ServerRequest serverRequest) {
-        Optional<String> movieInfoId = serverRequest.queryParam("movieInfoId");
+        List<String> movieInfoIds = serverRequest.queryParams().getOrDefault("movieInfoId", List.of());
+        FieldSelection fields = FieldSelection.parse(serverRequest.queryParam("fields").orElse(null), Review.class, "reviewId");
 
-        if (movieInfoId.isPresent()) {
-            Flux<Review> reviewsByMovieInfoId = this.reviewReactiveRepository.findByMovieInfoId(Long.parseLong(movieInfoId.get()));
-            return getServerResponseMono(reviewsByMovieInfoId);
+        if (movieInfoIds.size() == 1) {
+            Flux<Review> reviewsByMovieInfoId = this.reviewReactiveRepository
+                    .findProjectedByMovieInfoId(parseMovieInfoId(movieInfoIds.get(0)), fields.getFields());
+            return this.instrumentation.mono("reviews.byMovieInfoId", getServerResponseMono(reviewsByMovieInfoId));
+        } else if (movieInfoIds.size() > 1) {
+            // repeated movieInfoId parameters, the reviews of all those movies in one query
+            Set<Long> parsedMovieInfoIds = movieInfoIds.stream()
+                    .map(ReviewHandler::parseMovieInfoId)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            return this.instrumentation.mono("reviews.byMovieInfoIds",
+                    getServerResponseMono(this.reviewReactiveRepository.findProjectedByMovieInfoIdIn(parsedMovieInfoIds, fields.getFields())));
         }
 
-        Flux<Review> allReviewsFlux = this.reviewReactiveRepository.findAll();
-        return getServerResponseMono(allReviewsFlux);
+        return this.instrumentation.mono("reviews.page", Mono.defer(() -> {
+                    int limit = CursorPage.resolveLimit(serverRequest.queryParam("limit").orElse(null), defaultPageLimit, maxPageLimit);
+                    String afterId = CursorPage.decodeCursor(serverRequest.queryParam("after").orElse(null));
+
+                    return this.reviewReactiveRepository.findPageAfter(afterId, limit + 1, fields.getFields())
+                            .collectList()
+                            .map(reviews -> CursorPage.of(reviews, limit, Review::getReviewId));
+                })
+                .flatMap(page -> {
+                    ServerResponse.BodyBuilder response = ServerResponse.ok();
+                    if (page.getNext() != null) {
+                        response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNext());
+                    }
+                    return toJsonResponse(response, page.getItems());
+                }));
     }
 
     /**
@@ -77,51 +142,210 @@ public class ReviewHandler {
      * @return Mono<ServerResponse>
      */
     private Mono<ServerResponse> getServerResponseMono(Flux<Review> reviewsByMovieInfoId) {
-        return ServerResponse.ok().body(reviewsByMovieInfoId, Review.class);
+        return reviewsByMovieInfoId.collectList()
+                .flatMap(reviews -> toJsonResponse(ServerResponse.ok(), reviews));
+    }
+
+    /**
+     * Serialize the body once, to tag it with a hash of its JSON and to send it.
+     * An If-None-Match hit is answered with 304 and no body.
+     */
+    private Mono<ServerResponse> toJsonResponse(ServerResponse.BodyBuilder response, Object body) {
+        return Mono.fromCallable(() -> this.objectMapper.writeValueAsBytes(body))
+                .flatMap(json -> response.eTag(ETags.ofContent(json))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(json));
     }
 
     public Mono<ServerResponse> updateReview(ServerRequest serverRequest) {
 
         String reviewId = serverRequest.pathVariable("id");
-        Mono<Review> existingReview = this.reviewReactiveRepository.findById(reviewId)
-                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id : " + reviewId)));
-
-        return existingReview
-                .flatMap(review -> serverRequest.bodyToMono(Review.class)
-                        .map(reqReview -> {
-                            review.setComment(reqReview.getComment());
-                            review.setRating(reqReview.getRating());
-                            review.setMovieInfoId(reqReview.getMovieInfoId());
-                            review.setReviewId(reqReview.getReviewId());
-                            return review;
-                        }))
-                .flatMap(this.reviewReactiveRepository::save)
-                .flatMap(savedReview -> ServerResponse.status(HttpStatus.OK).bodyValue(savedReview));
+
+        return this.instrumentation.mono("reviews.update", serverRequest.bodyToMono(Review.class)
+                .doOnNext(this::validate)
+                .flatMap(reqReview -> {
+                    Map<String, Object> fields = new LinkedHashMap<>();
+                    fields.put("movieInfoId", reqReview.getMovieInfoId());
+                    fields.put("comment", reqReview.getComment());
+                    fields.put("rating", reqReview.getRating());
+                    return updateFields(serverRequest, reviewId, fields);
+                })
+                .flatMap(this::toVersionedResponse));
+    }
+
+    public Mono<ServerResponse> patchReview(ServerRequest serverRequest) {
+
+        String reviewId = serverRequest.pathVariable("id");
+
+        return this.instrumentation.mono("reviews.patch", serverRequest.bodyToMono(Review.class)
+                .flatMap(reqReview -> {
+                    Map<String, Object> fields = new LinkedHashMap<>();
+                    putIfPresent(fields, "movieInfoId", reqReview.getMovieInfoId());
+                    putIfPresent(fields, "comment", reqReview.getComment());
+                    putIfPresent(fields, "rating", reqReview.getRating());
+                    validateFields(fields);
+                    return updateFields(serverRequest, reviewId, fields);
+                })
+                .flatMap(this::toVersionedResponse));
+    }
+
+    /**
+     * Update the review in a single findAndModify, conditional on the If-Match version when the header is present.
+     * Only a miss does a second read, to tell a stale version (412) from a missing review (404).
+     * The findAndModify returns the previous review, the updated one is derived from it in memory.
+     */
+    private Mono<Review> updateFields(ServerRequest serverRequest, String reviewId, Map<String, Object> fields) {
+        Long expectedVersion = ETags.parseIfMatch(serverRequest.headers().firstHeader(HttpHeaders.IF_MATCH));
+
+        return this.reviewReactiveRepository.updateFieldsReturningPrevious(reviewId, fields, expectedVersion)
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null
+                        ? Mono.<Review>error(new ReviewNotFoundException("Review not found for the given Review id : " + reviewId))
+                        : this.reviewReactiveRepository.existsById(reviewId)
+                                .flatMap(exists -> Mono.<Review>error(exists
+                                        ? new PreconditionFailedException("Review " + reviewId + " was modified, expected version " + expectedVersion)
+                                        : new ReviewNotFoundException("Review not found for the given Review id : " + reviewId)))))
+                .flatMap(previousReview -> {
+                    Review updatedReview = applyFields(previousReview, fields);
+                    return moveRating(previousReview, updatedReview).thenReturn(updatedReview);
+                });
+    }
+
+    private static Review applyFields(Review previousReview, Map<String, Object> fields) {
+        Long previousVersion = previousReview.getVersion();
+        Review updatedReview = new Review(previousReview.getReviewId(), previousReview.getMovieInfoId(), previousReview.getComment(),
+                previousReview.getRating(), previousVersion == null ? 1L : previousVersion + 1);
+
+        BeanWrapper updatedFields = new BeanWrapperImpl(updatedReview);
+        fields.forEach(updatedFields::setPropertyValue);
+        return updatedReview;
+    }
+
+    private Mono<MovieRatingStats> addRating(Review review) {
+        if (review.getMovieInfoId() == null || review.getRating() == null) {
+            return Mono.empty();
+        }
+        return this.movieRatingStatsRepository.addRating(review.getMovieInfoId(), review.getRating());
+    }
+
+    private Mono<MovieRatingStats> removeRating(Review review) {
+        if (review.getMovieInfoId() == null || review.getRating() == null) {
+            return Mono.empty();
+        }
+        return this.movieRatingStatsRepository.removeRating(review.getMovieInfoId(), review.getRating());
+    }
+
+    private Mono<MovieRatingStats> moveRating(Review previousReview, Review updatedReview) {
+        if (Objects.equals(previousReview.getMovieInfoId(), updatedReview.getMovieInfoId())
+                && Objects.equals(previousReview.getRating(), updatedReview.getRating())) {
+            return Mono.empty();
+        }
+        // added first, a removal that recomputes the stats from the reviews already sees the updated rating
+        return addRating(updatedReview).then(removeRating(previousReview));
+    }
+
+    /**
+     * Rating stats of one movie, read from the aggregate maintained by the review writes.
+     */
+    public Mono<ServerResponse> getRatingStats(ServerRequest serverRequest) {
+        Long movieInfoId = serverRequest.queryParam("movieInfoId")
+                .map(ReviewHandler::parseMovieInfoId)
+                .orElseThrow(() -> new InvalidQueryParameterException("movieInfoId is required"));
+
+        return this.instrumentation.mono("reviews.stats", this.movieRatingStatsRepository.findById(movieInfoId)
+                .defaultIfEmpty(MovieRatingStats.empty(movieInfoId))
+                .flatMap(ServerResponse.ok()::bodyValue));
+    }
+
+    private Mono<ServerResponse> toVersionedResponse(Review review) {
+        return ServerResponse.status(HttpStatus.OK)
+                .eTag(ETags.of(review.getVersion()))
+                .bodyValue(review);
+    }
+
+    private static void putIfPresent(Map<String, Object> fields, String field, Object value) {
+        if (value != null) {
+            fields.put(field, value);
+        }
+    }
+
+    private void validateFields(Map<String, Object> fields) {
+        String errorMessage = fields.entrySet()
+                .stream()
+                .flatMap(field -> this.validator.validateValue(Review.class, field.getKey(), field.getValue()).stream())
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+
+        if (!errorMessage.isEmpty()) {
+            throw new ReviewDataException(errorMessage);
+        }
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest serverRequest) {
 
         String reviewId = serverRequest.pathVariable("id");
-        Mono<Review> existingReview = this.reviewReactiveRepository.findById(reviewId);
 
-        return existingReview
-                .flatMap(review -> this.reviewReactiveRepository.deleteById(reviewId))
-                .then(ServerResponse.status(HttpStatus.NO_CONTENT).build());
+        return this.instrumentation.mono("reviews.delete", this.reviewReactiveRepository.findAndRemoveById(reviewId)
+                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id : " + reviewId)))
+                .flatMap(deletedReview -> removeRating(deletedReview).then(ServerResponse.status(HttpStatus.NO_CONTENT).build())));
     }
 
+    /**
+     * The review is tagged with its version, an If-None-Match hit is answered with 304 without serializing it.
+     */
     public Mono<ServerResponse> getReviewById(ServerRequest serverRequest) {
         String reviewId = serverRequest.pathVariable("id");
 
-        Mono<Review> existingReview = this.reviewReactiveRepository.findById(reviewId)
-                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id : " + reviewId)));;
-
-        return ServerResponse.status(HttpStatus.OK).body(existingReview, Review.class);
+        return this.instrumentation.mono("reviews.get", this.reviewReactiveRepository.findById(reviewId)
+                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id : " + reviewId)))
+                .flatMap(this::toVersionedResponse));
     }
 
+    /**
+     * Stream of added reviews, only those of one movie when the movieInfoId query parameter is given. Empty heartbeat
+     * lines keep a quiet stream open, see {@link NdjsonStreams}.
+     */
     public Mono<ServerResponse> getReviewsStream(ServerRequest serverRequest) {
+        String topic = serverRequest.queryParam("movieInfoId")
+                .map(movieInfoId -> StreamTopics.reviewMovieInfoId(parseMovieInfoId(movieInfoId)))
+                .orElse(null);
+
         return ServerResponse.status(HttpStatus.OK)
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewsSink.asFlux(), Review.class)
-                .log();
+                .body(this.instrumentation.flux("reviews.stream",
+                        NdjsonStreams.of(this.reviewEventStream, this.reviewEventStream.subscribe(topic), this.objectMapper)), DataBuffer.class);
+    }
+
+    /**
+     * Server-sent events variant of {@link #getReviewsStream}, resumable with the Last-Event-ID header.
+     */
+    public Mono<ServerResponse> getReviewsSseStream(ServerRequest serverRequest) {
+        String topic = serverRequest.queryParam("movieInfoId")
+                .map(movieInfoId -> StreamTopics.reviewMovieInfoId(parseMovieInfoId(movieInfoId)))
+                .orElse(null);
+        Long lastEventId = Optional.ofNullable(serverRequest.headers().firstHeader("Last-Event-ID"))
+                .map(ReviewHandler::parseLastEventId)
+                .orElse(null);
+
+        return ServerResponse.status(HttpStatus.OK)
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(this.instrumentation.flux("reviews.stream.sse", ServerSentEvents.of(this.reviewEventStream, topic, lastEventId)),
+                        new ParameterizedTypeReference<ServerSentEvent<Review>>() {});
+    }
+
+    private static Long parseLastEventId(String lastEventId) {
+        try {
+            return Long.valueOf(lastEventId);
+        } catch (NumberFormatException exception) {
+            throw new InvalidQueryParameterException("Last-Event-ID must be a number");
+        }
+    }
+
+    private static Long parseMovieInfoId(String movieInfoId) {
+        try {
+            return Long.valueOf(movieInfoId);
+        } catch (NumberFormatException exception) {
+            throw new InvalidQueryParameterException("movieInfoId must be a number");
+        }
     }
 }
@@ -0,0 +1,107 @@
+package com.example.springwebfluxmongodb.instrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Instrumentation of the reactive pipelines of the endpoints and rest clients, applied per named route:
+ * <ul>
+ *     <li>every subscription is timed into the reactive.route timer, tagged with the route and how it ended;</li>
+ *     <li>a sampled share of the subscriptions (none by default) is traced with one line when it ends,
+ *     holding its element count and duration;</li>
+ *     <li>the routes listed in instrumentation.signalLogging.routes log every signal, for debugging only.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ReactiveInstrumentation {
+
+    private static final String TIMER_NAME = "reactive.route";
+    private static final String SIGNAL_LOG_CATEGORY = "reactive.route.";
+
+    private final MeterRegistry meterRegistry;
+    private final double traceSampleRate;
+    private final Set<String> signalLoggingRoutes;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public ReactiveInstrumentation(ObjectProvider<MeterRegistry> meterRegistry,
+                                   @Value("${instrumentation.tracing.sampleRate:0.0}") double traceSampleRate,
+                                   @Value("${instrumentation.signalLogging.routes:}") Set<String> signalLoggingRoutes) {
+        this.meterRegistry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.traceSampleRate = traceSampleRate;
+        this.signalLoggingRoutes = signalLoggingRoutes;
+    }
+
+    public <T> Mono<T> mono(String route, Mono<T> mono) {
+        Mono<T> source = this.signalLoggingRoutes.contains(route) ? mono.log(SIGNAL_LOG_CATEGORY + route) : mono;
+
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(this.meterRegistry);
+            Trace trace = sampled() ? new Trace() : null;
+
+            return (trace == null ? source : source.doOnNext(element -> trace.elements++))
+                    .doFinally(signalType -> stop(route, sample, trace, signalType));
+        });
+    }
+
+    public <T> Flux<T> flux(String route, Flux<T> flux) {
+        Flux<T> source = this.signalLoggingRoutes.contains(route) ? flux.log(SIGNAL_LOG_CATEGORY + route) : flux;
+
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(this.meterRegistry);
+            Trace trace = sampled() ? new Trace() : null;
+
+            return (trace == null ? source : source.doOnNext(element -> trace.elements++))
+                    .doFinally(signalType -> stop(route, sample, trace, signalType));
+        });
+    }
+
+    private boolean sampled() {
+        return this.traceSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < this.traceSampleRate;
+    }
+
+    private void stop(String route, Timer.Sample sample, Trace trace, SignalType signalType) {
+        String outcome = outcome(signalType);
+        long durationNanos = sample.stop(this.timers.computeIfAbsent(route + ':' + outcome, key -> Timer.builder(TIMER_NAME)
+                .tag("route", route)
+                .tag("outcome", outcome)
+                .register(this.meterRegistry)));
+
+        if (trace != null) {
+            log.info("Trace of route {} : {} after {} elements in {} ms", route, outcome, trace.elements,
+                    Duration.ofNanos(durationNanos).toMillis());
+        }
+    }
+
+    private static String outcome(SignalType signalType) {
+        return switch (signalType) {
+            case ON_COMPLETE -> "complete";
+            case ON_ERROR -> "error";
+            case CANCEL -> "cancel";
+            default -> signalType.toString();
+        };
+    }
+
+    /**
+     * State of one sampled subscription, only touched by its serial signals.
+     */
+    private static final class Trace {
+
+        private long elements;
+    }
+}
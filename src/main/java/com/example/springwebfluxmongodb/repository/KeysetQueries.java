@@ -0,0 +1,52 @@
+package com.example.springwebfluxmongodb.repository;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+
+import java.util.Collection;
+
+/**
+ * Keyset pagination over the primary key index. Deep pages cost the same as the first one
+ * because every page is an index seek, not a skip.
+ */
+final class KeysetQueries {
+
+    static final String ID_FIELD = "_id";
+
+    private KeysetQueries() {
+    }
+
+    static Query pageAfter(String afterId, int limit, Collection<String> fields) {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, ID_FIELD))
+                .limit(limit);
+
+        if (afterId != null) {
+            query.addCriteria(idAfter(afterId));
+        }
+        return including(query, fields);
+    }
+
+    /**
+     * Restrict the query to the given properties, every property is read when fields is empty.
+     */
+    static Query including(Query query, Collection<String> fields) {
+        fields.forEach(query.fields()::include);
+        return query;
+    }
+
+    private static Criteria idAfter(String afterId) {
+        if (ObjectId.isValid(afterId)) {
+            return Criteria.where(ID_FIELD).gt(new ObjectId(afterId));
+        }
+
+        // client assigned string ids sort before generated ObjectIds in BSON order,
+        // so every ObjectId still follows a string cursor
+        return new Criteria().orOperator(
+                Criteria.where(ID_FIELD).gt(afterId),
+                Criteria.where(ID_FIELD).type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+}
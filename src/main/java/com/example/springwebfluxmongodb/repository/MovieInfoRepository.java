@@ -5,9 +5,15 @@ import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String> {
+public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String>, MovieInfoRepositoryCustom {
 
     Flux<MovieInfo> findByYearBefore(Integer year);
 
     Mono<MovieInfo> findByName(String movieName);
+
+    /**
+     * Single round trip delete.
+     * @return number of deleted documents, 0 when there was no movie info with that id
+     */
+    Mono<Long> deleteByMovieInfoId(String movieInfoId);
 }
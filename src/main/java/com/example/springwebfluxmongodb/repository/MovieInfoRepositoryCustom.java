@@ -0,0 +1,66 @@
+package com.example.springwebfluxmongodb.repository;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import org.springframework.data.mongodb.core.query.Collation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public interface MovieInfoRepositoryCustom {
+
+    /**
+     * Compares cast members ignoring case, the cast index is only used by queries with the collation it was built with.
+     */
+    Collation CAST_MEMBER_IGNORE_CASE = Collation.of(Locale.ENGLISH).strength(Collation.ComparisonLevel.secondary());
+
+    /**
+     * Read up to limit movie infos ordered by id, starting right after afterId (from the start when null).
+     * @param fields - properties to read, all of them when empty
+     */
+    Flux<MovieInfo> findPageAfter(String afterId, int limit, Collection<String> fields);
+
+    /**
+     * Like {@link #findPageAfter}, restricted to the movie infos having the cast member. The filter and the order
+     * are both served by the (cast, _id) index.
+     * @param ignoreCase - compare with {@link #CAST_MEMBER_IGNORE_CASE}
+     */
+    Flux<MovieInfo> findByCastMemberAfter(String castMember, String afterId, int limit, Collection<String> fields, boolean ignoreCase);
+
+    /**
+     * Read only the given properties of a movie info.
+     */
+    Mono<MovieInfo> findProjectedById(String movieInfoId, Collection<String> fields);
+
+    /**
+     * Like {@link #findPageAfter}, restricted to the movie infos released before the year.
+     */
+    Flux<MovieInfo> findByYearBeforeAfter(Integer year, String afterId, int limit, Collection<String> fields);
+
+    /**
+     * Read only the given properties of the movie info with that name.
+     */
+    Mono<MovieInfo> findProjectedByName(String movieName, Collection<String> fields);
+
+    /**
+     * Insert the movie infos with a single unordered bulk write, a failing document does not stop the others.
+     * Missing ids are generated and set on the passed in movie infos before the write.
+     * @return the write error message by position, for the documents that were not inserted
+     */
+    Mono<Map<Integer, String>> insertUnordered(List<MovieInfo> movieInfos);
+
+    /**
+     * Set the given fields and increment the version in one findAndModify.
+     * @param expectedVersion - only update when the stored version matches, null for an unconditional update
+     * @return the updated movie info, empty when no document matched
+     */
+    Mono<MovieInfo> updateFields(String movieInfoId, Map<String, Object> fields, Long expectedVersion);
+
+    /**
+     * Movie infos matching any word of the text in the text index over name and cast, best text score first.
+     */
+    Flux<MovieInfo> searchText(String text, int skip, int limit);
+}
@@ -0,0 +1,108 @@
+package com.example.springwebfluxmongodb.repository;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class MovieInfoRepositoryCustomImpl implements MovieInfoRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<MovieInfo> findPageAfter(String afterId, int limit, Collection<String> fields) {
+        return this.reactiveMongoTemplate.find(KeysetQueries.pageAfter(afterId, limit, fields), MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findByCastMemberAfter(String castMember, String afterId, int limit, Collection<String> fields,
+                                                 boolean ignoreCase) {
+        Query query = KeysetQueries.pageAfter(afterId, limit, fields)
+                .addCriteria(Criteria.where("cast").is(castMember));
+        if (ignoreCase) {
+            query.collation(CAST_MEMBER_IGNORE_CASE);
+        }
+        return this.reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> findProjectedById(String movieInfoId, Collection<String> fields) {
+        Query query = Query.query(Criteria.where(KeysetQueries.ID_FIELD).is(movieInfoId));
+        return this.reactiveMongoTemplate.findOne(KeysetQueries.including(query, fields), MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findByYearBeforeAfter(Integer year, String afterId, int limit, Collection<String> fields) {
+        Query query = KeysetQueries.pageAfter(afterId, limit, fields)
+                .addCriteria(Criteria.where("year").lt(year));
+        return this.reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> findProjectedByName(String movieName, Collection<String> fields) {
+        Query query = Query.query(Criteria.where("name").is(movieName));
+        return this.reactiveMongoTemplate.findOne(KeysetQueries.including(query, fields), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> insertUnordered(List<MovieInfo> movieInfos) {
+        List<Document> documents = movieInfos.stream()
+                .map(this::toDocument)
+                .collect(Collectors.toList());
+
+        return this.reactiveMongoTemplate.getCollection(this.reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(insertManyResult -> Collections.<Integer, String>emptyMap())
+                .onErrorResume(MongoBulkWriteException.class, exception -> Mono.just(exception.getWriteErrors()
+                        .stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))));
+    }
+
+    @Override
+    public Mono<MovieInfo> updateFields(String movieInfoId, Map<String, Object> fields, Long expectedVersion) {
+        return this.reactiveMongoTemplate.findAndModify(
+                VersionedUpdates.byIdAndVersion(movieInfoId, expectedVersion),
+                VersionedUpdates.setFields(fields),
+                VersionedUpdates.RETURN_NEW,
+                MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> searchText(String text, int skip, int limit) {
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .skip(skip)
+                .limit(limit);
+        return this.reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    private Document toDocument(MovieInfo movieInfo) {
+        if (movieInfo.getMovieInfoId() == null) {
+            movieInfo.setMovieInfoId(new ObjectId().toHexString());
+        }
+        movieInfo.setVersion(0L);
+
+        Document document = new Document();
+        this.reactiveMongoTemplate.getConverter().write(movieInfo, document);
+        return document;
+    }
+}
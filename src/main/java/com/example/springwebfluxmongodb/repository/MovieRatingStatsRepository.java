@@ -0,0 +1,7 @@
+package com.example.springwebfluxmongodb.repository;
+
+import com.example.springwebfluxmongodb.domain.MovieRatingStats;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface MovieRatingStatsRepository extends ReactiveMongoRepository<MovieRatingStats, Long>, MovieRatingStatsRepositoryCustom {
+}
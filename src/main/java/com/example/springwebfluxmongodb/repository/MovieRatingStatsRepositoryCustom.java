@@ -0,0 +1,32 @@
+package com.example.springwebfluxmongodb.repository;
+
+import com.example.springwebfluxmongodb.domain.MovieRatingStats;
+import reactor.core.publisher.Mono;
+
+public interface MovieRatingStatsRepositoryCustom {
+
+    /**
+     * Count one more rating of the movie with $inc, $min and $max in one upsert.
+     * @return the stats after the update
+     */
+    Mono<MovieRatingStats> addRating(Long movieInfoId, double rating);
+
+    /**
+     * Count one rating less with $inc. $inc cannot undo $min and $max, so the stats of the movie are recomputed
+     * from its reviews when the removed rating was the minimum or the maximum, and deleted with the last rating.
+     * @return the stats after the update, empty when the movie has no rating left
+     */
+    Mono<MovieRatingStats> removeRating(Long movieInfoId, double rating);
+
+    /**
+     * Recompute the stats of one movie from its reviews with an aggregation merged into the stats collection.
+     */
+    Mono<MovieRatingStats> recompute(Long movieInfoId);
+
+    /**
+     * Recompute the stats of every movie from the reviews, merged movie by movie into the stats collection ($merge),
+     * then remove the stats of movies left without rated reviews. Only an increment applied between the aggregation
+     * reading the reviews of a movie and replacing its stats is lost, it is counted again by the next rebuild.
+     */
+    Mono<Void> rebuildAll();
+}
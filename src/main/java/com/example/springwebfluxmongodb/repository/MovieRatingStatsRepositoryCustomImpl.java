@@ -0,0 +1,142 @@
+package com.example.springwebfluxmongodb.repository;
+
+import com.example.springwebfluxmongodb.domain.MovieRatingStats;
+import com.example.springwebfluxmongodb.domain.Review;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MovieRatingStatsRepositoryCustomImpl implements MovieRatingStatsRepositoryCustom {
+
+    private static final FindAndModifyOptions UPSERT_RETURN_NEW = FindAndModifyOptions.options().upsert(true).returnNew(true);
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieRatingStatsRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<MovieRatingStats> addRating(Long movieInfoId, double rating) {
+        Update update = new Update()
+                .inc("count", 1)
+                .inc("sum", rating)
+                .inc("histogram." + MovieRatingStats.histogramBucket(rating), 1)
+                .min("min", rating)
+                .max("max", rating);
+
+        return this.reactiveMongoTemplate.findAndModify(byMovieInfoId(movieInfoId), update, UPSERT_RETURN_NEW, MovieRatingStats.class);
+    }
+
+    @Override
+    public Mono<MovieRatingStats> removeRating(Long movieInfoId, double rating) {
+        Update update = new Update()
+                .inc("count", -1)
+                .inc("sum", -rating)
+                .inc("histogram." + MovieRatingStats.histogramBucket(rating), -1);
+
+        return this.reactiveMongoTemplate.findAndModify(byMovieInfoId(movieInfoId), update, VersionedUpdates.RETURN_NEW, MovieRatingStats.class)
+                .flatMap(stats -> {
+                    if (stats.getCount() <= 0) {
+                        // only when no rating was added in the meantime
+                        Query lastRatingRemoved = byMovieInfoId(movieInfoId).addCriteria(Criteria.where("count").lte(0));
+                        return this.reactiveMongoTemplate.remove(lastRatingRemoved, MovieRatingStats.class).then(Mono.empty());
+                    }
+                    if (Double.valueOf(rating).equals(stats.getMin()) || Double.valueOf(rating).equals(stats.getMax())) {
+                        return recompute(movieInfoId);
+                    }
+                    return Mono.just(stats);
+                });
+    }
+
+    @Override
+    public Mono<MovieRatingStats> recompute(Long movieInfoId) {
+        List<AggregationOperation> stages = ratingStatsStages(Criteria.where("movieInfoId").is(movieInfoId));
+        stages.add(mergeIntoStats());
+
+        return this.reactiveMongoTemplate.aggregate(Aggregation.newAggregation(stages), reviewCollection(), Document.class)
+                .then(this.reactiveMongoTemplate.findOne(byMovieInfoId(movieInfoId), MovieRatingStats.class));
+    }
+
+    @Override
+    public Mono<Void> rebuildAll() {
+        List<AggregationOperation> stages = ratingStatsStages(new Criteria());
+        stages.add(mergeIntoStats());
+
+        Aggregation aggregation = Aggregation.newAggregation(stages)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        return this.reactiveMongoTemplate.aggregate(aggregation, reviewCollection(), Document.class)
+                .then(removeUnrated());
+    }
+
+    /**
+     * $merge leaves the stats of movies without rated reviews in place, they are removed one by one,
+     * only while their count is the one read, so a rating added in the meantime keeps them.
+     */
+    private Mono<Void> removeUnrated() {
+        Query statsCounts = new Query();
+        statsCounts.fields().include("count");
+
+        return this.reactiveMongoTemplate.find(statsCounts, MovieRatingStats.class)
+                .filterWhen(stats -> this.reactiveMongoTemplate.exists(ratedReviewsOf(stats.getMovieInfoId()), Review.class)
+                        .map(rated -> !rated))
+                .concatMap(stats -> this.reactiveMongoTemplate.remove(byMovieInfoId(stats.getMovieInfoId())
+                        .addCriteria(Criteria.where("count").is(stats.getCount())), MovieRatingStats.class))
+                .then();
+    }
+
+    private AggregationOperation mergeIntoStats() {
+        return context -> new Document("$merge", new Document("into", statsCollection())
+                .append("on", "_id")
+                .append("whenMatched", "replace")
+                .append("whenNotMatched", "insert"));
+    }
+
+    private static Query ratedReviewsOf(Long movieInfoId) {
+        return Query.query(Criteria.where("movieInfoId").is(movieInfoId).and("rating").ne(null));
+    }
+
+    /**
+     * Group the rated reviews by movie and histogram bucket, then by movie, folding the buckets into the histogram.
+     */
+    private static List<AggregationOperation> ratingStatsStages(Criteria reviews) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(reviews.and("rating").ne(null)));
+        stages.add(context -> new Document("$group", new Document("_id", new Document("movieInfoId", "$movieInfoId")
+                .append("bucket", new Document("$toString", new Document("$toLong", new Document("$floor", "$rating")))))
+                .append("count", new Document("$sum", 1L))
+                .append("sum", new Document("$sum", "$rating"))
+                .append("min", new Document("$min", "$rating"))
+                .append("max", new Document("$max", "$rating"))));
+        stages.add(context -> new Document("$group", new Document("_id", "$_id.movieInfoId")
+                .append("count", new Document("$sum", "$count"))
+                .append("sum", new Document("$sum", "$sum"))
+                .append("min", new Document("$min", "$min"))
+                .append("max", new Document("$max", "$max"))
+                .append("histogram", new Document("$push", new Document("k", "$_id.bucket").append("v", "$count")))));
+        stages.add(context -> new Document("$set", new Document("histogram", new Document("$arrayToObject", "$histogram"))));
+        return stages;
+    }
+
+    private static Query byMovieInfoId(Long movieInfoId) {
+        return Query.query(Criteria.where(KeysetQueries.ID_FIELD).is(movieInfoId));
+    }
+
+    private String reviewCollection() {
+        return this.reactiveMongoTemplate.getCollectionName(Review.class);
+    }
+
+    private String statsCollection() {
+        return this.reactiveMongoTemplate.getCollectionName(MovieRatingStats.class);
+    }
+}
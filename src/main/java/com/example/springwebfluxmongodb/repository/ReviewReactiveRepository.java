@@ -4,6 +4,13 @@ import com.example.springwebfluxmongodb.domain.Review;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
+import java.util.Collection;
+
+public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String>, ReviewReactiveRepositoryCustom {
     Flux<Review> findByMovieInfoId(Long movieInfoId);
+
+    /**
+     * Reviews of several movies in one $in query, served by the movieInfoId_rating index.
+     */
+    Flux<Review> findByMovieInfoIdIn(Collection<Long> movieInfoIds);
 }
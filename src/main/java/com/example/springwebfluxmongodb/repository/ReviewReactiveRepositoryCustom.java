@@ -0,0 +1,51 @@
+package com.example.springwebfluxmongodb.repository;
+
+import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.domain.TopRatedMovie;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface ReviewReactiveRepositoryCustom {
+
+    /**
+     * Read up to limit reviews ordered by id, starting right after afterId (from the start when null).
+     * @param fields - properties to read, all of them when empty
+     */
+    Flux<Review> findPageAfter(String afterId, int limit, Collection<String> fields);
+
+    /**
+     * Reviews of one movie, with only the given properties read.
+     * @param fields - properties to read, all of them when empty
+     */
+    Flux<Review> findProjectedByMovieInfoId(Long movieInfoId, Collection<String> fields);
+
+    /**
+     * Reviews of several movies in one $in query, with only the given properties read.
+     * @param fields - properties to read, all of them when empty
+     */
+    Flux<Review> findProjectedByMovieInfoIdIn(Collection<Long> movieInfoIds, Collection<String> fields);
+
+    /**
+     * Set the given fields and increment the version in one findAndModify.
+     * @param expectedVersion - only update when the stored version matches, null for an unconditional update
+     * @return the review as it was before the update, so that the rating stats can be moved from the old
+     * rating to the new one, empty when no document matched
+     */
+    Mono<Review> updateFieldsReturningPrevious(String reviewId, Map<String, Object> fields, Long expectedVersion);
+
+    /**
+     * Single round trip delete.
+     * @return the deleted review, empty when there was no review with that id
+     */
+    Mono<Review> findAndRemoveById(String reviewId);
+
+    /**
+     * Highest average rating first, computed by one aggregation over the reviews joined to the movie infos.
+     * @param minReviews - only movies with at least that many rated reviews
+     * @param year - only movies released in that year, every year when null
+     */
+    Flux<TopRatedMovie> findTopRated(int limit, long minReviews, Integer year);
+}
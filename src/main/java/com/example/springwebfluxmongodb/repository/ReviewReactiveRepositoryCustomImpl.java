@@ -0,0 +1,86 @@
+package com.example.springwebfluxmongodb.repository;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.domain.TopRatedMovie;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public class ReviewReactiveRepositoryCustomImpl implements ReviewReactiveRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewReactiveRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Review> findPageAfter(String afterId, int limit, Collection<String> fields) {
+        return this.reactiveMongoTemplate.find(KeysetQueries.pageAfter(afterId, limit, fields), Review.class);
+    }
+
+    @Override
+    public Flux<Review> findProjectedByMovieInfoId(Long movieInfoId, Collection<String> fields) {
+        Query query = Query.query(Criteria.where("movieInfoId").is(movieInfoId));
+        return this.reactiveMongoTemplate.find(KeysetQueries.including(query, fields), Review.class);
+    }
+
+    @Override
+    public Flux<Review> findProjectedByMovieInfoIdIn(Collection<Long> movieInfoIds, Collection<String> fields) {
+        Query query = Query.query(Criteria.where("movieInfoId").in(movieInfoIds));
+        return this.reactiveMongoTemplate.find(KeysetQueries.including(query, fields), Review.class);
+    }
+
+    @Override
+    public Mono<Review> updateFieldsReturningPrevious(String reviewId, Map<String, Object> fields, Long expectedVersion) {
+        return this.reactiveMongoTemplate.findAndModify(
+                VersionedUpdates.byIdAndVersion(reviewId, expectedVersion),
+                VersionedUpdates.setFields(fields),
+                Review.class);
+    }
+
+    @Override
+    public Mono<Review> findAndRemoveById(String reviewId) {
+        return this.reactiveMongoTemplate.findAndRemove(Query.query(Criteria.where(KeysetQueries.ID_FIELD).is(reviewId)), Review.class);
+    }
+
+    /**
+     * Reviews hold the movie info id as a number and movie infos as a string, the join converts it. Aggregation
+     * stages pull their input, so after the sort only as many movie infos are looked up as the limit needs.
+     */
+    @Override
+    public Flux<TopRatedMovie> findTopRated(int limit, long minReviews, Integer year) {
+        Document movieInfoMatch = new Document("$expr", new Document("$eq", List.of("$_id", "$$movieInfoId")));
+        if (year != null) {
+            movieInfoMatch.append("year", year);
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                        Aggregation.match(Criteria.where("rating").ne(null)),
+                        context -> new Document("$group", new Document("_id", "$movieInfoId")
+                                .append("reviewCount", new Document("$sum", 1L))
+                                .append("averageRating", new Document("$avg", "$rating"))),
+                        Aggregation.match(Criteria.where("reviewCount").gte(minReviews)),
+                        context -> new Document("$sort", new Document("averageRating", -1).append("reviewCount", -1).append("_id", 1)),
+                        context -> new Document("$lookup", new Document("from", this.reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                                .append("let", new Document("movieInfoId", new Document("$toString", "$_id")))
+                                .append("pipeline", List.of(new Document("$match", movieInfoMatch)))
+                                .append("as", "movieInfo")),
+                        Aggregation.unwind("movieInfo"),
+                        Aggregation.limit(limit),
+                        Aggregation.project("movieInfo", "averageRating", "reviewCount").andExclude(KeysetQueries.ID_FIELD))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        return this.reactiveMongoTemplate.aggregate(aggregation, this.reactiveMongoTemplate.getCollectionName(Review.class), TopRatedMovie.class);
+    }
+}
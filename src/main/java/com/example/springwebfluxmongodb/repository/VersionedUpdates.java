@@ -0,0 +1,41 @@
+package com.example.springwebfluxmongodb.repository;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Single round trip updates of versioned documents: one findAndModify that matches the id (and the expected
+ * version for conditional updates), sets the given fields, bumps the version and returns the new document.
+ */
+final class VersionedUpdates {
+
+    static final String VERSION_FIELD = "version";
+
+    static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private VersionedUpdates() {
+    }
+
+    static Query byIdAndVersion(String id, Long expectedVersion) {
+        Query query = Query.query(Criteria.where(KeysetQueries.ID_FIELD).is(id));
+
+        if (expectedVersion != null) {
+            // documents written before versioning was introduced have no version field, their entity tag is 0
+            query.addCriteria(expectedVersion == 0L
+                    ? Criteria.where(VERSION_FIELD).in(Arrays.asList(0L, null))
+                    : Criteria.where(VERSION_FIELD).is(expectedVersion));
+        }
+        return query;
+    }
+
+    static Update setFields(Map<String, Object> fields) {
+        Update update = new Update();
+        fields.forEach(update::set);
+        return update.inc(VERSION_FIELD, 1);
+    }
+}
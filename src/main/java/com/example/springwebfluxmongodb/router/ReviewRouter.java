@@ -19,10 +19,13 @@ public class ReviewRouter {
                     builder
                             .POST("", reviewHandler::addReview)
                             .GET("", reviewHandler::getAllReviews)
+                            .GET("/stats", reviewHandler::getRatingStats)
                             .GET("/{id}", reviewHandler::getReviewById)
                             .PUT("/{id}", reviewHandler::updateReview)
+                            .PATCH("/{id}", reviewHandler::patchReview)
                             .DELETE("{id}", reviewHandler::deleteReview)
-                            .GET("/stream/flux", reviewHandler::getReviewsStream);
+                            .GET("/stream/flux", reviewHandler::getReviewsStream)
+                            .GET("/stream/sse", reviewHandler::getReviewsSseStream);
                 })
                 .build();
     }
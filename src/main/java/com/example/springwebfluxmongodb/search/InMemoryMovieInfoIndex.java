@@ -0,0 +1,111 @@
+package com.example.springwebfluxmongodb.search;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
+import com.example.springwebfluxmongodb.service.MovieInfoChangeListener;
+import org.springframework.beans.factory.InitializingBean;
+import reactor.core.publisher.Flux;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index of the normalized words of the movie info names and casts, for catalogs that fit in memory.
+ * It is loaded from the repository at startup and kept current by the movie info change stream. Results are ranked by
+ * the sum, over the query words, of the field weight times the inverse document frequency of the word.
+ */
+public class InMemoryMovieInfoIndex implements MovieInfoSearch, MovieInfoChangeListener, InitializingBean {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int CAST_WEIGHT = 1;
+
+    private final MovieInfoRepository movieInfoRepository;
+
+    private final Map<String, MovieInfo> movieInfosById = new ConcurrentHashMap<>();
+
+    /**
+     * Word to the ids of the movie infos containing it, with the weight of the word in each of them.
+     * Writes are serialized by this, searches read concurrently.
+     */
+    private final Map<String, Map<String, Integer>> postings = new ConcurrentHashMap<>();
+
+    public InMemoryMovieInfoIndex(MovieInfoRepository movieInfoRepository) {
+        this.movieInfoRepository = movieInfoRepository;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        MovieInfoIndexLoader.load(this.movieInfoRepository, this::index, this.movieInfosById::size, "movie infos for search");
+    }
+
+    @Override
+    public void onSaved(MovieInfo movieInfo) {
+        index(movieInfo);
+    }
+
+    @Override
+    public void onDeleted(String movieInfoId) {
+        remove(movieInfoId);
+    }
+
+    @Override
+    public Flux<MovieInfo> search(String query, int offset, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(rank(query, offset, limit)));
+    }
+
+    List<MovieInfo> rank(String query, int offset, int limit) {
+        int indexedCount = Math.max(1, this.movieInfosById.size());
+        Map<String, Double> scores = new HashMap<>();
+
+        for (String token : new LinkedHashSet<>(SearchText.tokens(query))) {
+            Map<String, Integer> weights = this.postings.get(token);
+            if (weights == null) {
+                continue;
+            }
+            double inverseDocumentFrequency = Math.log(1 + (double) indexedCount / weights.size());
+            weights.forEach((movieInfoId, weight) -> scores.merge(movieInfoId, weight * inverseDocumentFrequency, Double::sum));
+        }
+
+        return scores.entrySet()
+                .stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .skip(offset)
+                .limit(limit)
+                .map(score -> this.movieInfosById.get(score.getKey()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private synchronized void index(MovieInfo movieInfo) {
+        remove(movieInfo.getMovieInfoId());
+        this.movieInfosById.put(movieInfo.getMovieInfoId(), movieInfo);
+        weightsOf(movieInfo).forEach((token, weight) -> this.postings
+                .computeIfAbsent(token, key -> new ConcurrentHashMap<>())
+                .put(movieInfo.getMovieInfoId(), weight));
+    }
+
+    private synchronized void remove(String movieInfoId) {
+        MovieInfo indexedMovieInfo = this.movieInfosById.remove(movieInfoId);
+        if (indexedMovieInfo == null) {
+            return;
+        }
+        weightsOf(indexedMovieInfo).keySet().forEach(token -> this.postings.computeIfPresent(token, (key, weights) -> {
+            weights.remove(movieInfoId);
+            return weights.isEmpty() ? null : weights;
+        }));
+    }
+
+    private static Map<String, Integer> weightsOf(MovieInfo movieInfo) {
+        Map<String, Integer> weights = new HashMap<>();
+        SearchText.tokens(movieInfo.getName()).forEach(token -> weights.merge(token, NAME_WEIGHT, Integer::sum));
+        if (movieInfo.getCast() != null) {
+            movieInfo.getCast().forEach(castMember ->
+                    SearchText.tokens(castMember).forEach(token -> weights.merge(token, CAST_WEIGHT, Integer::sum)));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.springwebfluxmongodb.search;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Search served by the text index of the movieInfo collection, see {@link MovieInfo}.
+ */
+public class MongoTextMovieInfoSearch implements MovieInfoSearch {
+
+    private final MovieInfoRepository movieInfoRepository;
+
+    public MongoTextMovieInfoSearch(MovieInfoRepository movieInfoRepository) {
+        this.movieInfoRepository = movieInfoRepository;
+    }
+
+    @Override
+    public Flux<MovieInfo> search(String query, int offset, int limit) {
+        return this.movieInfoRepository.searchText(query, offset, limit);
+    }
+}
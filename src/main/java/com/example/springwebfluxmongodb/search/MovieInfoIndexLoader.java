@@ -0,0 +1,34 @@
+package com.example.springwebfluxmongodb.search;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Startup load of the in-memory indexes: every movie info of the repository is indexed before the node takes traffic.
+ */
+@Slf4j
+final class MovieInfoIndexLoader {
+
+    private static final Duration LOAD_TIMEOUT = Duration.ofMinutes(2);
+
+    private MovieInfoIndexLoader() {
+    }
+
+    /**
+     * @param indexedCount - size of the index once loaded, for the log
+     * @param indexName    - what was indexed, for the log
+     */
+    static void load(MovieInfoRepository movieInfoRepository, Consumer<MovieInfo> index, IntSupplier indexedCount, String indexName) {
+        long start = System.nanoTime();
+        movieInfoRepository.findAll()
+                .doOnNext(index)
+                .then()
+                .block(LOAD_TIMEOUT);
+        log.info("Indexed {} {} in {} ms", indexedCount.getAsInt(), indexName, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.springwebfluxmongodb.search;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import reactor.core.publisher.Flux;
+
+/**
+ * Full-text search over the name and the cast of the movie infos.
+ */
+public interface MovieInfoSearch {
+
+    /**
+     * Movie infos matching any word of the query, most relevant first, a match on the name weighs more than
+     * a match on the cast.
+     * @param offset - number of results to skip
+     */
+    Flux<MovieInfo> search(String query, int offset, int limit);
+}
@@ -0,0 +1,96 @@
+package com.example.springwebfluxmongodb.search;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.MovieInfoSuggestion;
+import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
+import com.example.springwebfluxmongodb.service.MovieInfoChangeListener;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Type-ahead over the movie info names, held in memory by every node. The normalized names are kept sorted,
+ * so the names starting with a prefix are one contiguous range found with a single lookup, and the suggestions
+ * returned are the ones stored, nothing is built per request but the result list.
+ * It is loaded from the repository at startup and kept current by the movie info change stream.
+ */
+@Component
+public class MovieNameSuggester implements MovieInfoChangeListener, InitializingBean {
+
+    /**
+     * Sorts before any other character, so equal names stay together and ahead of longer ones.
+     */
+    private static final char ID_SEPARATOR = '\u0000';
+
+    private final MovieInfoRepository movieInfoRepository;
+
+    /**
+     * Normalized name followed by the id, to the suggestion for that movie info. Writes are serialized by this.
+     */
+    private final ConcurrentNavigableMap<String, MovieInfoSuggestion> suggestionsByKey = new ConcurrentSkipListMap<>();
+
+    private final Map<String, String> keysById = new ConcurrentHashMap<>();
+
+    public MovieNameSuggester(MovieInfoRepository movieInfoRepository) {
+        this.movieInfoRepository = movieInfoRepository;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        MovieInfoIndexLoader.load(this.movieInfoRepository, this::index, this.keysById::size, "movie info names for suggestions");
+    }
+
+    @Override
+    public void onSaved(MovieInfo movieInfo) {
+        index(movieInfo);
+    }
+
+    @Override
+    public void onDeleted(String movieInfoId) {
+        remove(movieInfoId);
+    }
+
+    /**
+     * Up to limit movie infos whose name starts with the prefix, ignoring case and diacritics, in name order.
+     * A prefix that normalizes to nothing, diacritics only for instance, has no suggestions.
+     */
+    public List<MovieInfoSuggestion> suggest(String prefix, int limit) {
+        String normalizedPrefix = SearchText.normalize(prefix);
+        if (normalizedPrefix.isBlank()) {
+            return List.of();
+        }
+        List<MovieInfoSuggestion> suggestions = new ArrayList<>(limit);
+
+        for (Map.Entry<String, MovieInfoSuggestion> entry : this.suggestionsByKey.tailMap(normalizedPrefix).entrySet()) {
+            if (suggestions.size() == limit || !entry.getKey().startsWith(normalizedPrefix)) {
+                break;
+            }
+            suggestions.add(entry.getValue());
+        }
+        return suggestions;
+    }
+
+    private synchronized void index(MovieInfo movieInfo) {
+        remove(movieInfo.getMovieInfoId());
+        if (movieInfo.getName() == null) {
+            return;
+        }
+
+        String key = SearchText.normalize(movieInfo.getName()) + ID_SEPARATOR + movieInfo.getMovieInfoId();
+        this.suggestionsByKey.put(key, new MovieInfoSuggestion(movieInfo.getMovieInfoId(), movieInfo.getName()));
+        this.keysById.put(movieInfo.getMovieInfoId(), key);
+    }
+
+    private synchronized void remove(String movieInfoId) {
+        String key = this.keysById.remove(movieInfoId);
+        if (key != null) {
+            this.suggestionsByKey.remove(key);
+        }
+    }
+}
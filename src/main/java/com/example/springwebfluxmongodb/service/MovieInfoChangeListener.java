@@ -0,0 +1,17 @@
+package com.example.springwebfluxmongodb.service;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+
+/**
+ * Notified of the movie info writes published by {@link MovieInfoService} on the movie info change stream, to keep
+ * in-memory indexes current. Every listener bean is registered, on a shared stream it sees the writes of all nodes.
+ */
+public interface MovieInfoChangeListener {
+
+    /**
+     * A movie info was inserted or updated, it is passed as stored.
+     */
+    void onSaved(MovieInfo movieInfo);
+
+    void onDeleted(String movieInfoId);
+}
@@ -1,6 +1,9 @@
 package com.example.springwebfluxmongodb.service;
 
+import com.example.springwebfluxmongodb.domain.BulkInsertResult;
+import com.example.springwebfluxmongodb.domain.CursorPage;
 import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.util.FieldSelection;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -8,15 +11,48 @@ public interface MovieInfoService {
 
     Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo);
 
+    Flux<BulkInsertResult> addMovieInfos(Flux<MovieInfo> movieInfos);
+
     Flux<MovieInfo> findAll();
 
+    Mono<CursorPage<MovieInfo>> findPage(String afterCursor, int limit, FieldSelection fields);
+
+    /**
+     * One keyset page of the movie infos the cast member appears in, read with an index seek.
+     */
+    Mono<CursorPage<MovieInfo>> findPageByCastMember(String castMember, String afterCursor, int limit, FieldSelection fields);
+
     Mono<MovieInfo> findById(String movieInfoId);
 
-    Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String movieInfoId);
+    Mono<MovieInfo> findById(String movieInfoId, FieldSelection fields);
+
+    /**
+     * Replace the mutable fields of a movie info in one round trip.
+     * @param expectedVersion - version from If-Match, null for an unconditional update
+     * @return the updated movie info, empty when there is none with that id
+     */
+    Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String movieInfoId, Long expectedVersion);
 
-    Mono<Void> deleteById(String movieInfoId);
+    /**
+     * Set only the non null fields of the passed in movie info in one round trip.
+     * @param expectedVersion - version from If-Match, null for an unconditional update
+     * @return the updated movie info, empty when there is none with that id
+     */
+    Mono<MovieInfo> patchMovieInfo(MovieInfo partialMovieInfo, String movieInfoId, Long expectedVersion);
+
+    /**
+     * @return number of deleted movie infos, 0 when there was none with that id
+     */
+    Mono<Long> deleteById(String movieInfoId);
 
     Flux<MovieInfo> getMoviesBeforeYear(Integer beforeYear);
 
+    /**
+     * One keyset page of the movie infos released before the year.
+     */
+    Mono<CursorPage<MovieInfo>> findPageBeforeYear(Integer beforeYear, String afterCursor, int limit, FieldSelection fields);
+
     Mono<MovieInfo> getMovieByName(String movieName);
+
+    Mono<MovieInfo> getMovieByName(String movieName, FieldSelection fields);
 }
@@ -0,0 +1,27 @@
+package com.example.springwebfluxmongodb.service;
+
+import com.example.springwebfluxmongodb.domain.Movie;
+import com.example.springwebfluxmongodb.domain.TopRatedMovie;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface MovieService {
+
+    /**
+     * A movie info with its reviews, both fetched at the same time.
+     */
+    Mono<Movie> getMovieById(String movieId);
+
+    /**
+     * Movies in the order of the given ids, streamed batch by batch. Ids without a movie info are skipped.
+     */
+    Flux<Movie> getMoviesByIds(List<String> movieIds);
+
+    /**
+     * Highest rated movies first, among those with at least minReviews reviews, optionally only those released
+     * in the given year. Served from a cache refreshed in the background.
+     */
+    Flux<TopRatedMovie> getTopRatedMovies(int limit, long minReviews, Integer year);
+}
@@ -0,0 +1,64 @@
+package com.example.springwebfluxmongodb.service.impl;
+
+import com.example.springwebfluxmongodb.domain.MovieInfoChange;
+import com.example.springwebfluxmongodb.service.MovieInfoChangeListener;
+import com.example.springwebfluxmongodb.stream.EventStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+
+import java.util.List;
+
+/**
+ * Hands the movie info change stream to the in-memory indexes. With a shared stream every node sees the writes of
+ * all nodes, with a local one only its own. The listeners load their content before the subscription starts.
+ */
+@Component
+@Slf4j
+public class MovieInfoChangeDispatcher implements InitializingBean, DisposableBean {
+
+    private final EventStream<MovieInfoChange> movieInfoChangeStream;
+
+    private final List<MovieInfoChangeListener> changeListeners;
+
+    private Disposable subscription;
+
+    public MovieInfoChangeDispatcher(EventStream<MovieInfoChange> movieInfoChangeStream,
+                                     List<MovieInfoChangeListener> changeListeners) {
+        this.movieInfoChangeStream = movieInfoChangeStream;
+        this.changeListeners = changeListeners;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.subscription = this.movieInfoChangeStream.subscribe()
+                .subscribe(this::dispatch);
+    }
+
+    @Override
+    public void destroy() {
+        if (this.subscription != null) {
+            this.subscription.dispose();
+        }
+    }
+
+    /**
+     * A failing listener is logged and skipped, it must not end the subscription of the others.
+     */
+    void dispatch(MovieInfoChange change) {
+        for (MovieInfoChangeListener listener : this.changeListeners) {
+            try {
+                if (change.getMovieInfo() == null) {
+                    listener.onDeleted(change.getMovieInfoId());
+                } else {
+                    listener.onSaved(change.getMovieInfo());
+                }
+            } catch (RuntimeException exception) {
+                log.error("Movie info change listener {} failed on {} : {}", listener.getClass().getSimpleName(),
+                        change.getMovieInfoId(), exception.getMessage(), exception);
+            }
+        }
+    }
+}
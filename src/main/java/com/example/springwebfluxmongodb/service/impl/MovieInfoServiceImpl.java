@@ -1,22 +1,178 @@
 package com.example.springwebfluxmongodb.service.impl;
 
+import com.example.springwebfluxmongodb.domain.BulkInsertResult;
+import com.example.springwebfluxmongodb.domain.CursorPage;
 import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.MovieInfoChange;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoDataException;
+import com.example.springwebfluxmongodb.exceptions.PreconditionFailedException;
 import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
 import com.example.springwebfluxmongodb.service.MovieInfoService;
+import com.example.springwebfluxmongodb.stream.EventStream;
+import com.example.springwebfluxmongodb.util.Batches;
+import com.example.springwebfluxmongodb.util.FieldSelection;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class MovieInfoServiceImpl implements MovieInfoService {
     private final MovieInfoRepository movieInfoRepository;
 
-    public MovieInfoServiceImpl(MovieInfoRepository movieInfoRepository) {
+    /**
+     * Near cache of movie infos by id. Entries are refreshed by the write methods of this service
+     * and expire after the configured ttl to bound staleness from writes done by other nodes.
+     */
+    private final Cache<String, MovieInfo> movieInfoByIdCache;
+
+    /**
+     * Name to id index on top of the id cache. A hit is only trusted if the cached movie info still carries that name.
+     */
+    private final Cache<String, String> movieInfoIdByNameCache;
+
+    /**
+     * Tombstones of the movie infos deleted by this node within the ttl. A read that started before the delete may
+     * complete after it, its result must not bring the deleted movie info back into the cache.
+     */
+    private final Cache<String, Boolean> deletedMovieInfoIds;
+
+    private final Validator validator;
+
+    /**
+     * Every write is published here for the in-memory indexes, see {@link MovieInfoChangeDispatcher}.
+     */
+    private final EventStream<MovieInfoChange> movieInfoChangeStream;
+
+    @Value("${movieInfo.bulk.batchSize:500}")
+    private int bulkBatchSize = 500;
+
+    @Value("${movieInfo.bulk.maxInFlightBatches:2}")
+    private int bulkMaxInFlightBatches = 2;
+
+    @Value("${movieInfo.bulk.maxBatchWait:200ms}")
+    private Duration bulkMaxBatchWait = Duration.ofMillis(200);
+
+    @Value("${movieInfo.castMember.ignoreCase:false}")
+    private boolean castMemberIgnoreCase;
+
+    public MovieInfoServiceImpl(MovieInfoRepository movieInfoRepository,
+                                Validator validator,
+                                MeterRegistry meterRegistry,
+                                EventStream<MovieInfoChange> movieInfoChangeStream,
+                                @Value("${movieInfo.cache.maxSize:10000}") long cacheMaxSize,
+                                @Value("${movieInfo.cache.ttl:5m}") Duration cacheTtl) {
         this.movieInfoRepository = movieInfoRepository;
+        this.validator = validator;
+        this.movieInfoChangeStream = movieInfoChangeStream;
+        this.movieInfoByIdCache = buildCache(cacheMaxSize, cacheTtl);
+        this.movieInfoIdByNameCache = buildCache(cacheMaxSize, cacheTtl);
+        this.deletedMovieInfoIds = buildCache(cacheMaxSize, cacheTtl);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, this.movieInfoByIdCache, "movieInfo.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, this.movieInfoIdByNameCache, "movieInfo.byName");
+    }
+
+    private static <K, V> Cache<K, V> buildCache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
     }
 
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
-        return this.movieInfoRepository.save(movieInfo);
+        // a new document always starts at version 0, whatever the client sent
+        movieInfo.setVersion(null);
+        return this.movieInfoRepository.save(movieInfo)
+                .doOnNext(this::cacheWrittenMovieInfo)
+                .flatMap(this::publishSaved);
+    }
+
+    /**
+     * Validate and insert a stream of movie infos in micro-batches, one unordered bulk write per batch.
+     * Only a bounded number of batches is buffered at a time, so the size of the import does not matter.
+     * A partial batch is cut after at most the max batch wait, so slow producers still get timely results, and is
+     * written when a batch slot frees up, never ahead of the inserts in flight.
+     */
+    @Override
+    public Flux<BulkInsertResult> addMovieInfos(Flux<MovieInfo> movieInfos) {
+        return Batches.of(movieInfos.index(), bulkBatchSize, bulkMaxBatchWait)
+                .flatMapSequential(this::insertBatch, bulkMaxInFlightBatches);
+    }
+
+    private Flux<BulkInsertResult> insertBatch(List<Tuple2<Long, MovieInfo>> batch) {
+        List<BulkInsertResult> results = new ArrayList<>(batch.size());
+        List<Long> validIndexes = new ArrayList<>(batch.size());
+        List<MovieInfo> validMovieInfos = new ArrayList<>(batch.size());
+
+        for (Tuple2<Long, MovieInfo> indexedMovieInfo : batch) {
+            String violations = validate(indexedMovieInfo.getT2());
+            if (violations.isEmpty()) {
+                validIndexes.add(indexedMovieInfo.getT1());
+                validMovieInfos.add(indexedMovieInfo.getT2());
+            } else {
+                results.add(BulkInsertResult.failed(indexedMovieInfo.getT1(), violations));
+            }
+        }
+
+        if (validMovieInfos.isEmpty()) {
+            return Flux.fromIterable(results);
+        }
+
+        return this.movieInfoRepository.insertUnordered(validMovieInfos)
+                .onErrorResume(exception -> Mono.just(allFailed(validMovieInfos.size(), exception.getMessage())))
+                .flatMapMany(writeErrors -> {
+                    List<MovieInfo> insertedMovieInfos = new ArrayList<>(validMovieInfos.size());
+                    for (int i = 0; i < validMovieInfos.size(); i++) {
+                        String writeError = writeErrors.get(i);
+                        if (writeError == null) {
+                            MovieInfo insertedMovieInfo = validMovieInfos.get(i);
+                            cacheWrittenMovieInfo(insertedMovieInfo);
+                            insertedMovieInfos.add(insertedMovieInfo);
+                            results.add(BulkInsertResult.created(validIndexes.get(i), insertedMovieInfo));
+                        } else {
+                            results.add(BulkInsertResult.failed(validIndexes.get(i), writeError));
+                        }
+                    }
+                    results.sort(Comparator.comparingLong(BulkInsertResult::getIndex));
+                    return Flux.fromIterable(insertedMovieInfos)
+                            .concatMap(this::publishSaved)
+                            .thenMany(Flux.fromIterable(results));
+                });
+    }
+
+    private static Map<Integer, String> allFailed(int size, String error) {
+        return IntStream.range(0, size)
+                .boxed()
+                .collect(Collectors.toMap(i -> i, i -> String.valueOf(error)));
+    }
+
+    private String validate(MovieInfo movieInfo) {
+        Set<ConstraintViolation<MovieInfo>> constraintViolations = this.validator.validate(movieInfo);
+
+        return constraintViolations
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
     }
 
     @Override
@@ -24,27 +180,121 @@ public class MovieInfoServiceImpl implements MovieInfoService {
         return this.movieInfoRepository.findAll();
     }
 
+    @Override
+    public Mono<CursorPage<MovieInfo>> findPage(String afterCursor, int limit, FieldSelection fields) {
+        return Mono.defer(() -> this.movieInfoRepository
+                .findPageAfter(CursorPage.decodeCursor(afterCursor), limit + 1, fields.getFields())
+                .collectList()
+                .map(movieInfos -> CursorPage.of(movieInfos, limit, MovieInfo::getMovieInfoId)));
+    }
+
+    @Override
+    public Mono<CursorPage<MovieInfo>> findPageByCastMember(String castMember, String afterCursor, int limit, FieldSelection fields) {
+        return Mono.defer(() -> this.movieInfoRepository
+                .findByCastMemberAfter(castMember, CursorPage.decodeCursor(afterCursor), limit + 1, fields.getFields(), castMemberIgnoreCase)
+                .collectList()
+                .map(movieInfos -> CursorPage.of(movieInfos, limit, MovieInfo::getMovieInfoId)));
+    }
+
     @Override
     public Mono<MovieInfo> findById(String movieInfoId) {
-        return this.movieInfoRepository.findById(movieInfoId);
+        return Mono.defer(() -> {
+            MovieInfo cachedMovieInfo = this.movieInfoByIdCache.getIfPresent(movieInfoId);
+            if (cachedMovieInfo != null) {
+                return Mono.just(cachedMovieInfo);
+            }
+
+            return this.movieInfoRepository.findById(movieInfoId)
+                    .doOnNext(this::cacheMovieInfo);
+        });
     }
 
+    /**
+     * A cached movie info is trimmed in memory, a miss reads only the selected fields and is not cached.
+     */
     @Override
-    public Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String movieInfoId) {
-        return this.movieInfoRepository
-                .findById(movieInfoId)
-                .flatMap(movieInfo -> {
-                    movieInfo.setName(updatedMovieInfo.getName());
-                    movieInfo.setYear(updatedMovieInfo.getYear());
-                    movieInfo.setCast(updatedMovieInfo.getCast());
-                    movieInfo.setReleaseDate(updatedMovieInfo.getReleaseDate());
-                    return movieInfoRepository.save(movieInfo);
-                });
+    public Mono<MovieInfo> findById(String movieInfoId, FieldSelection fields) {
+        if (fields.isAll()) {
+            return findById(movieInfoId);
+        }
+
+        return Mono.defer(() -> {
+            MovieInfo cachedMovieInfo = this.movieInfoByIdCache.getIfPresent(movieInfoId);
+            if (cachedMovieInfo != null) {
+                return Mono.just(fields.apply(cachedMovieInfo));
+            }
+
+            return this.movieInfoRepository.findProjectedById(movieInfoId, fields.getFields());
+        });
+    }
+
+    @Override
+    public Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String movieInfoId, Long expectedVersion) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", updatedMovieInfo.getName());
+        fields.put("year", updatedMovieInfo.getYear());
+        fields.put("cast", updatedMovieInfo.getCast());
+        fields.put("releaseDate", updatedMovieInfo.getReleaseDate());
+
+        return updateFields(movieInfoId, fields, expectedVersion);
+    }
+
+    @Override
+    public Mono<MovieInfo> patchMovieInfo(MovieInfo partialMovieInfo, String movieInfoId, Long expectedVersion) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        putIfPresent(fields, "name", partialMovieInfo.getName());
+        putIfPresent(fields, "year", partialMovieInfo.getYear());
+        putIfPresent(fields, "cast", partialMovieInfo.getCast());
+        putIfPresent(fields, "releaseDate", partialMovieInfo.getReleaseDate());
+
+        return Mono.fromRunnable(() -> validateFields(fields))
+                .then(updateFields(movieInfoId, fields, expectedVersion));
+    }
+
+    private Mono<MovieInfo> updateFields(String movieInfoId, Map<String, Object> fields, Long expectedVersion) {
+        return this.movieInfoRepository.updateFields(movieInfoId, fields, expectedVersion)
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null
+                        ? Mono.<MovieInfo>empty()
+                        : this.movieInfoRepository.existsById(movieInfoId)
+                                .flatMap(exists -> exists
+                                        ? Mono.<MovieInfo>error(new PreconditionFailedException("MovieInfo " + movieInfoId
+                                                + " was modified, expected version " + expectedVersion))
+                                        : Mono.<MovieInfo>empty())))
+                .doOnNext(this::cacheWrittenMovieInfo)
+                .flatMap(this::publishSaved);
+    }
+
+    private static void putIfPresent(Map<String, Object> fields, String field, Object value) {
+        if (value != null) {
+            fields.put(field, value);
+        }
+    }
+
+    private void validateFields(Map<String, Object> fields) {
+        String violations = fields.entrySet()
+                .stream()
+                .flatMap(field -> this.validator.validateValue(MovieInfo.class, field.getKey(), field.getValue()).stream())
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+
+        if (!violations.isEmpty()) {
+            throw new MovieInfoDataException(violations);
+        }
     }
 
     @Override
-    public Mono<Void> deleteById(String movieInfoId) {
-        return this.movieInfoRepository.deleteById(movieInfoId);
+    public Mono<Long> deleteById(String movieInfoId) {
+        return this.movieInfoRepository.deleteByMovieInfoId(movieInfoId)
+                .doOnNext(deletedCount -> {
+                    if (deletedCount > 0) {
+                        this.deletedMovieInfoIds.put(movieInfoId, Boolean.TRUE);
+                    }
+                })
+                .flatMap(deletedCount -> deletedCount > 0
+                        ? this.movieInfoChangeStream.publish(MovieInfoChange.deleted(movieInfoId)).thenReturn(deletedCount)
+                        : Mono.just(deletedCount))
+                .doFinally(signalType -> this.movieInfoByIdCache.invalidate(movieInfoId));
     }
 
     @Override
@@ -52,8 +302,86 @@ public class MovieInfoServiceImpl implements MovieInfoService {
         return this.movieInfoRepository.findByYearBefore(beforeYear);
     }
 
+    @Override
+    public Mono<CursorPage<MovieInfo>> findPageBeforeYear(Integer beforeYear, String afterCursor, int limit, FieldSelection fields) {
+        return Mono.defer(() -> this.movieInfoRepository
+                .findByYearBeforeAfter(beforeYear, CursorPage.decodeCursor(afterCursor), limit + 1, fields.getFields())
+                .collectList()
+                .map(movieInfos -> CursorPage.of(movieInfos, limit, MovieInfo::getMovieInfoId)));
+    }
+
     @Override
     public Mono<MovieInfo> getMovieByName(String movieName) {
-        return this.movieInfoRepository.findByName(movieName);
+        return Mono.defer(() -> {
+            String cachedMovieInfoId = this.movieInfoIdByNameCache.getIfPresent(movieName);
+            if (cachedMovieInfoId != null) {
+                MovieInfo cachedMovieInfo = this.movieInfoByIdCache.getIfPresent(cachedMovieInfoId);
+                if (cachedMovieInfo != null && movieName.equals(cachedMovieInfo.getName())) {
+                    return Mono.just(cachedMovieInfo);
+                }
+            }
+
+            return this.movieInfoRepository.findByName(movieName)
+                    .doOnNext(this::cacheMovieInfo);
+        });
+    }
+
+    /**
+     * Like {@link #findById(String, FieldSelection)}, a cached movie info is trimmed in memory and a miss reads
+     * only the selected fields.
+     */
+    @Override
+    public Mono<MovieInfo> getMovieByName(String movieName, FieldSelection fields) {
+        if (fields.isAll()) {
+            return getMovieByName(movieName);
+        }
+
+        return Mono.defer(() -> {
+            String cachedMovieInfoId = this.movieInfoIdByNameCache.getIfPresent(movieName);
+            if (cachedMovieInfoId != null) {
+                MovieInfo cachedMovieInfo = this.movieInfoByIdCache.getIfPresent(cachedMovieInfoId);
+                if (cachedMovieInfo != null && movieName.equals(cachedMovieInfo.getName())) {
+                    return Mono.just(fields.apply(cachedMovieInfo));
+                }
+            }
+
+            return this.movieInfoRepository.findProjectedByName(movieName, fields.getFields());
+        });
+    }
+
+    private Mono<MovieInfo> publishSaved(MovieInfo movieInfo) {
+        return this.movieInfoChangeStream.publish(MovieInfoChange.saved(movieInfo)).thenReturn(movieInfo);
+    }
+
+    /**
+     * A successful insert or update means the movie info exists again, whatever was deleted before.
+     */
+    private void cacheWrittenMovieInfo(MovieInfo movieInfo) {
+        this.deletedMovieInfoIds.invalidate(movieInfo.getMovieInfoId());
+        cacheMovieInfo(movieInfo);
+    }
+
+    /**
+     * Reads and writes of the same movie info complete in any order, a read that started before a write must not
+     * replace the version that write cached. A movie info only replaces a cached version that is not newer, and is
+     * not cached at all while its id has a tombstone. The tombstone is checked inside the atomic compute and written
+     * before the delete invalidates the entry, so the invalidation always comes after a read that missed it.
+     */
+    private void cacheMovieInfo(MovieInfo movieInfo) {
+        MovieInfo cachedMovieInfo = this.movieInfoByIdCache.asMap().compute(movieInfo.getMovieInfoId(),
+                (movieInfoId, currentMovieInfo) -> {
+                    if (this.deletedMovieInfoIds.getIfPresent(movieInfoId) != null) {
+                        return currentMovieInfo;
+                    }
+                    return currentMovieInfo != null && isOlder(movieInfo, currentMovieInfo) ? currentMovieInfo : movieInfo;
+                });
+        if (cachedMovieInfo == movieInfo && movieInfo.getName() != null) {
+            this.movieInfoIdByNameCache.put(movieInfo.getName(), movieInfo.getMovieInfoId());
+        }
+    }
+
+    private static boolean isOlder(MovieInfo candidateMovieInfo, MovieInfo currentMovieInfo) {
+        return candidateMovieInfo.getVersion() != null && currentMovieInfo.getVersion() != null
+                && candidateMovieInfo.getVersion() < currentMovieInfo.getVersion();
     }
 }
@@ -0,0 +1,258 @@
+package com.example.springwebfluxmongodb.service.impl;
+
+import com.example.springwebfluxmongodb.client.MoviesInfoRestClient;
+import com.example.springwebfluxmongodb.client.ReviewsRestClient;
+import com.example.springwebfluxmongodb.domain.Movie;
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.domain.TopRatedMovie;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoClientException;
+import com.example.springwebfluxmongodb.repository.ReviewReactiveRepository;
+import com.example.springwebfluxmongodb.service.MovieInfoService;
+import com.example.springwebfluxmongodb.service.MovieService;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class MovieServiceImpl implements MovieService, ApplicationListener<WebServerInitializedEvent> {
+
+    public enum InProcessMode {
+        /**
+         * Call the service and repository directly when a rest client url points at this application.
+         */
+        AUTO,
+        /**
+         * Always call the service and repository directly.
+         */
+        ALWAYS,
+        /**
+         * Always go through the rest clients.
+         */
+        NEVER
+    }
+
+    private static final Set<String> LOOPBACK_HOSTS = Set.of("localhost", "127.0.0.1", "[::1]", "::1");
+
+    private static final int TOP_RATED_QUERIES = 100;
+
+    private final MoviesInfoRestClient moviesInfoRestClient;
+    private final ReviewsRestClient reviewsRestClient;
+    private final MovieInfoService movieInfoService;
+    private final ReviewReactiveRepository reviewReactiveRepository;
+
+    private final InProcessMode inProcessMode;
+    private final String moviesInfoUrl;
+    private final String reviewsUrl;
+
+    private volatile boolean moviesInfoInProcess;
+    private volatile boolean reviewsInProcess;
+
+    /**
+     * Top rated lists per query. A list older than the refresh interval is still served while it is recomputed
+     * in the background, so that the aggregation runs at most once per interval and query whatever the traffic.
+     */
+    private final AsyncLoadingCache<TopRatedQuery, List<TopRatedMovie>> topRatedMovies;
+
+    @Value("${movies.batch.size:10}")
+    private int batchSize = 10;
+
+    @Value("${movies.batch.concurrency:4}")
+    private int batchConcurrency = 4;
+
+    public MovieServiceImpl(MoviesInfoRestClient moviesInfoRestClient,
+                            ReviewsRestClient reviewsRestClient,
+                            MovieInfoService movieInfoService,
+                            ReviewReactiveRepository reviewReactiveRepository,
+                            @Value("${restClient.inProcess:auto}") InProcessMode inProcessMode,
+                            @Value("${restClient.moviesInfoUrl}") String moviesInfoUrl,
+                            @Value("${restClient.reviewsUrl}") String reviewsUrl,
+                            @Value("${movies.top.refreshAfter:30s}") Duration topRatedRefreshAfter,
+                            @Value("${movies.top.expireAfter:10m}") Duration topRatedExpireAfter) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.reviewsRestClient = reviewsRestClient;
+        this.movieInfoService = movieInfoService;
+        this.reviewReactiveRepository = reviewReactiveRepository;
+        this.inProcessMode = inProcessMode;
+        this.moviesInfoUrl = moviesInfoUrl;
+        this.reviewsUrl = reviewsUrl;
+
+        this.moviesInfoInProcess = inProcessMode == InProcessMode.ALWAYS;
+        this.reviewsInProcess = inProcessMode == InProcessMode.ALWAYS;
+
+        this.topRatedMovies = Caffeine.newBuilder()
+                .maximumSize(TOP_RATED_QUERIES)
+                .refreshAfterWrite(topRatedRefreshAfter)
+                .expireAfterWrite(topRatedExpireAfter)
+                .buildAsync((query, executor) -> reviewReactiveRepository
+                        .findTopRated(query.getLimit(), query.getMinReviews(), query.getYear())
+                        .collectList()
+                        .toFuture());
+    }
+
+    /**
+     * The local port is only known once the server is started, the urls are checked against it then.
+     */
+    @Override
+    public void onApplicationEvent(WebServerInitializedEvent event) {
+        if (this.inProcessMode != InProcessMode.AUTO || event.getApplicationContext().getServerNamespace() != null) {
+            return;
+        }
+        int port = event.getWebServer().getPort();
+        this.moviesInfoInProcess = pointsAtThisServer(this.moviesInfoUrl, port, "/v1/movieInfos");
+        this.reviewsInProcess = pointsAtThisServer(this.reviewsUrl, port, "/v1/reviews");
+        log.info("Movie infos fetched {}, reviews fetched {}", this.moviesInfoInProcess ? "in-process" : "over http",
+                this.reviewsInProcess ? "in-process" : "over http");
+    }
+
+    @Override
+    public Mono<Movie> getMovieById(String movieId) {
+        return Mono.zip(retrieveMovieInfo(movieId), retrieveReviews(movieId).collectList(), Movie::new);
+    }
+
+    @Override
+    public Flux<Movie> getMoviesByIds(List<String> movieIds) {
+        return Flux.fromIterable(movieIds)
+                .buffer(this.batchSize)
+                .flatMapSequential(this::retrieveMovies, this.batchConcurrency);
+    }
+
+    @Override
+    public Flux<TopRatedMovie> getTopRatedMovies(int limit, long minReviews, Integer year) {
+        // a copy, so that a cancelled request does not cancel the load the other requests are waiting for
+        return Mono.fromFuture(this.topRatedMovies.get(new TopRatedQuery(limit, minReviews, year)).copy())
+                .flatMapIterable(movies -> movies);
+    }
+
+    /**
+     * The movie infos of a batch are fetched side by side, its reviews with a single query.
+     */
+    private Flux<Movie> retrieveMovies(List<String> movieIds) {
+        Mono<List<MovieInfo>> movieInfos = Flux.fromIterable(movieIds)
+                .flatMapSequential(this::retrieveMovieInfoIfPresent)
+                .collectList();
+        Mono<Map<Long, List<Review>>> reviewsByMovieInfoId = retrieveReviews(movieIds)
+                .filter(review -> review.getMovieInfoId() != null)
+                .collect(Collectors.groupingBy(Review::getMovieInfoId));
+
+        return Mono.zip(movieInfos, reviewsByMovieInfoId)
+                .flatMapIterable(movieInfosAndReviews -> movieInfosAndReviews.getT1()
+                        .stream()
+                        .map(movieInfo -> new Movie(movieInfo, reviewsOf(movieInfo, movieInfosAndReviews.getT2())))
+                        .toList());
+    }
+
+    /**
+     * Matched on the parsed id, like the query was built, so "007" gets the reviews of movie info 7 as it does from
+     * the reviews API. An id that is not a number can have no reviews and explicitly gets none.
+     */
+    private static List<Review> reviewsOf(MovieInfo movieInfo, Map<Long, List<Review>> reviewsByMovieInfoId) {
+        Long movieInfoId = parseMovieInfoId(movieInfo.getMovieInfoId());
+        return movieInfoId == null ? List.of() : reviewsByMovieInfoId.getOrDefault(movieInfoId, List.of());
+    }
+
+    private Mono<MovieInfo> retrieveMovieInfoIfPresent(String movieId) {
+        return retrieveMovieInfo(movieId)
+                .onErrorResume(MovieInfoClientException.class, exception ->
+                        Objects.equals(exception.getStatusCode(), HttpStatus.NOT_FOUND.value())
+                                ? Mono.<MovieInfo>empty()
+                                : Mono.<MovieInfo>error(exception));
+    }
+
+    /**
+     * Ids that are not numeric can have no reviews and are left out in both modes, sent to the reviews service
+     * they would fail the whole batch with a 400.
+     */
+    private Flux<Review> retrieveReviews(List<String> movieIds) {
+        Set<Long> movieInfoIds = movieIds.stream()
+                .map(MovieServiceImpl::parseMovieInfoId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (movieInfoIds.isEmpty()) {
+            return Flux.empty();
+        }
+        if (!this.reviewsInProcess) {
+            return this.reviewsRestClient.retrieveReviews(movieInfoIds.stream().map(String::valueOf).toList());
+        }
+        return this.reviewReactiveRepository.findByMovieInfoIdIn(movieInfoIds);
+    }
+
+    private Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        if (!this.moviesInfoInProcess) {
+            return this.moviesInfoRestClient.retrieveMovieInfo(movieId);
+        }
+        return this.movieInfoService.findById(movieId)
+                .switchIfEmpty(Mono.error(() -> new MovieInfoClientException(
+                        "There is no MovieInfo Available for the passed in Id" + movieId, HttpStatus.NOT_FOUND.value())));
+    }
+
+    private Flux<Review> retrieveReviews(String movieId) {
+        // reviews reference movie infos by a numeric id, no review can belong to any other id
+        Long movieInfoId = parseMovieInfoId(movieId);
+        if (movieInfoId == null) {
+            return Flux.empty();
+        }
+        if (!this.reviewsInProcess) {
+            return this.reviewsRestClient.retrieveReviews(movieId);
+        }
+        return this.reviewReactiveRepository.findByMovieInfoId(movieInfoId);
+    }
+
+    /**
+     * Reviews reference movie infos by number, every review lookup goes through this one normalization.
+     * @return null when the id is not a number (an ObjectId for instance)
+     */
+    private static Long parseMovieInfoId(String movieId) {
+        if (movieId == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(movieId);
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    static boolean pointsAtThisServer(String url, int port, String path) {
+        URI uri = URI.create(url);
+        int urlPort = uri.getPort() != -1 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+
+        return uri.getHost() != null
+                && LOOPBACK_HOSTS.contains(uri.getHost().toLowerCase())
+                && urlPort == port
+                && uri.getPath() != null
+                && uri.getPath().startsWith(path);
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class TopRatedQuery {
+
+        private final int limit;
+
+        private final long minReviews;
+
+        private final Integer year;
+    }
+}
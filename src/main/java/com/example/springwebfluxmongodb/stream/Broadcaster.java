@@ -0,0 +1,410 @@
+package com.example.springwebfluxmongodb.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Fan-out of events to any number of subscribers. Every subscriber drains its own bounded buffer at the pace of its
+ * own demand, so a stalled client never holds back or fails the emissions of the others. A full buffer is handled
+ * by the {@link OverflowPolicy}, and a heartbeat tick disconnects subscribers that stopped consuming.
+ * A new subscriber first receives the latest event published since the broadcaster started.
+ * <p>
+ * Every event has a sequence id, either given by the publisher (shared by every node of a {@link MongoEventStream})
+ * or assigned here, increasing for the life of the node and seeded from the clock so ids keep increasing across
+ * restarts. The most recent events are kept in a bounded ring, in publish order. A subscriber that reconnects with
+ * the id of the last event it saw gets the retained events after that one replayed instead of the latest one.
+ * <p>
+ * Subscribers may listen to a single topic. Every event names its topics, and publishing only looks up the
+ * subscribers of those topics, so a filtered subscriber costs nothing for the events it does not match.
+ */
+@Slf4j
+public class Broadcaster<T> implements DisposableBean {
+
+    public enum OverflowPolicy {
+        /**
+         * Evict the oldest buffered event to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Keep the buffered events, the new one is not delivered to that subscriber.
+         */
+        DROP_NEWEST,
+        /**
+         * Complete the subscriber's stream, the client has to reconnect.
+         */
+        DISCONNECT
+    }
+
+    private final String name;
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    private final long idleTimeoutNanos;
+    private final Function<T, Collection<String>> topicsOf;
+    private final int replayBufferSize;
+    private final Duration heartbeatInterval;
+
+    /**
+     * Every subscriber, for metrics and reaping. Publishing goes through the routing maps below.
+     */
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final Map<Long, Subscriber> unfilteredSubscribers = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, Subscriber>> topicSubscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+
+    /**
+     * Guarded by the broadcaster's lock, like the ring of recent events.
+     */
+    private long sequence = System.currentTimeMillis() * 1000;
+    private final Deque<SequencedEvent<T>> recentEvents = new ArrayDeque<>();
+    private SequencedEvent<T> latestEvent;
+
+    private final Counter droppedEvents;
+    private final Counter overflowDisconnects;
+    private final Counter idleDisconnects;
+
+    private final Disposable heartbeat;
+
+    public Broadcaster(String name, int bufferSize, OverflowPolicy overflowPolicy, Duration heartbeatInterval,
+                       Duration idleTimeout, int replayBufferSize, MeterRegistry meterRegistry) {
+        this(name, bufferSize, overflowPolicy, heartbeatInterval, idleTimeout, replayBufferSize, meterRegistry, event -> List.of());
+    }
+
+    public Broadcaster(String name, int bufferSize, OverflowPolicy overflowPolicy, Duration heartbeatInterval,
+                       Duration idleTimeout, int replayBufferSize, MeterRegistry meterRegistry,
+                       Function<T, Collection<String>> topicsOf) {
+        this.name = name;
+        this.bufferSize = bufferSize;
+        this.overflowPolicy = overflowPolicy;
+        this.heartbeatInterval = heartbeatInterval;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.replayBufferSize = Math.max(1, replayBufferSize);
+        this.topicsOf = topicsOf;
+
+        Gauge.builder("stream.subscribers", this.subscribers, Map::size)
+                .tag("stream", name)
+                .register(meterRegistry);
+        Gauge.builder("stream.buffered", this, Broadcaster::bufferedEvents)
+                .description("Events buffered for subscribers and not delivered yet")
+                .tag("stream", name)
+                .register(meterRegistry);
+        this.droppedEvents = Counter.builder("stream.dropped")
+                .tag("stream", name)
+                .register(meterRegistry);
+        this.overflowDisconnects = Counter.builder("stream.disconnected")
+                .tag("stream", name)
+                .tag("reason", "overflow")
+                .register(meterRegistry);
+        this.idleDisconnects = Counter.builder("stream.disconnected")
+                .tag("stream", name)
+                .tag("reason", "idle")
+                .register(meterRegistry);
+
+        this.heartbeat = Flux.interval(heartbeatInterval)
+                .subscribe(tick -> reapIdleSubscribers());
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getReplayBufferSize() {
+        return this.replayBufferSize;
+    }
+
+    /**
+     * Ticks at the heartbeat interval, for transports that can send a frame without payload.
+     */
+    public Flux<Long> heartbeats() {
+        return Flux.interval(this.heartbeatInterval);
+    }
+
+    public void publish(T payload) {
+        List<Subscriber> recipients;
+        synchronized (this) {
+            recipients = offer(new SequencedEvent<>(++this.sequence, payload));
+        }
+        recipients.forEach(Subscriber::drain);
+    }
+
+    /**
+     * Publish with an id assigned by the publisher, the same on every node that broadcasts the event.
+     */
+    public void publish(long id, T payload) {
+        List<Subscriber> recipients;
+        synchronized (this) {
+            recipients = offer(new SequencedEvent<>(id, payload));
+        }
+        recipients.forEach(Subscriber::drain);
+    }
+
+    /**
+     * Called with the broadcaster's lock held, returns the subscribers that accepted the event.
+     */
+    private List<Subscriber> offer(SequencedEvent<T> event) {
+        retain(event);
+        this.latestEvent = event;
+
+        List<Subscriber> recipients = new ArrayList<>(this.unfilteredSubscribers.values());
+        for (String topic : this.topicsOf.apply(event.getEvent())) {
+            Map<Long, Subscriber> subscribersOfTopic = this.topicSubscribers.get(topic);
+            if (subscribersOfTopic != null) {
+                recipients.addAll(subscribersOfTopic.values());
+            }
+        }
+        recipients.removeIf(subscriber -> !subscriber.offer(event));
+        return recipients;
+    }
+
+    /**
+     * Keep an event published before this broadcaster started for replay only, it is not delivered to anyone.
+     */
+    public synchronized void retain(long id, T payload) {
+        retain(new SequencedEvent<>(id, payload));
+    }
+
+    private void retain(SequencedEvent<T> event) {
+        this.recentEvents.offerLast(event);
+        if (this.recentEvents.size() > this.replayBufferSize) {
+            this.recentEvents.pollFirst();
+        }
+    }
+
+    public Flux<T> subscribe() {
+        return subscribe(null);
+    }
+
+    /**
+     * Subscribe to the events of one topic, or to every event when the topic is null.
+     */
+    public Flux<T> subscribe(String topic) {
+        return subscribe(topic, null).map(SequencedEvent::getEvent);
+    }
+
+    /**
+     * Subscribe with the sequence id of every event. With a lastEventId the retained events published after that
+     * event are replayed first. When it is no longer retained the events with a greater id are, so when it is older
+     * than the ring only the retained part of the gap can be replayed.
+     */
+    public Flux<SequencedEvent<T>> subscribe(String topic, Long lastEventId) {
+        return Flux.create(sink -> {
+            Subscriber subscriber = new Subscriber(this.subscriberIds.incrementAndGet(), topic, sink);
+            sink.onRequest(requested -> subscriber.drain());
+            sink.onDispose(() -> unregister(subscriber));
+
+            synchronized (this) {
+                this.subscribers.put(subscriber.id, subscriber);
+                if (topic == null) {
+                    this.unfilteredSubscribers.put(subscriber.id, subscriber);
+                } else {
+                    this.topicSubscribers.computeIfAbsent(topic, key -> new ConcurrentHashMap<>()).put(subscriber.id, subscriber);
+                }
+                if (lastEventId != null) {
+                    eventsAfter(lastEventId).stream()
+                            .filter(event -> matches(event, topic))
+                            .forEach(subscriber::replay);
+                } else if (this.latestEvent != null && matches(this.latestEvent, topic)) {
+                    subscriber.offer(this.latestEvent);
+                }
+            }
+            subscriber.drain();
+        }, FluxSink.OverflowStrategy.IGNORE);
+    }
+
+    public List<SubscriberStats> subscriberStats() {
+        long now = System.nanoTime();
+        return this.subscribers.values()
+                .stream()
+                .sorted(Comparator.comparingLong(subscriber -> subscriber.id))
+                .map(subscriber -> subscriber.stats(now))
+                .toList();
+    }
+
+    @Override
+    public void destroy() {
+        this.heartbeat.dispose();
+        this.subscribers.values().forEach(subscriber -> subscriber.sink.complete());
+    }
+
+    /**
+     * Called with the broadcaster's lock held. Ids given by several publishers may reach the ring slightly out of
+     * order, the position of the last seen event is what tells which events came after it.
+     */
+    private List<SequencedEvent<T>> eventsAfter(long lastEventId) {
+        List<SequencedEvent<T>> events = new ArrayList<>(this.recentEvents);
+        for (int i = events.size() - 1; i >= 0; i--) {
+            if (events.get(i).getId() == lastEventId) {
+                return events.subList(i + 1, events.size());
+            }
+        }
+        events.removeIf(event -> event.getId() <= lastEventId);
+        return events;
+    }
+
+    private boolean matches(SequencedEvent<T> event, String topic) {
+        return topic == null || this.topicsOf.apply(event.getEvent()).contains(topic);
+    }
+
+    private synchronized void unregister(Subscriber subscriber) {
+        this.subscribers.remove(subscriber.id);
+        if (subscriber.topic == null) {
+            this.unfilteredSubscribers.remove(subscriber.id);
+            return;
+        }
+        Map<Long, Subscriber> subscribersOfTopic = this.topicSubscribers.get(subscriber.topic);
+        if (subscribersOfTopic != null) {
+            subscribersOfTopic.remove(subscriber.id);
+            if (subscribersOfTopic.isEmpty()) {
+                this.topicSubscribers.remove(subscriber.topic);
+            }
+        }
+    }
+
+    private int bufferedEvents() {
+        return this.subscribers.values()
+                .stream()
+                .mapToInt(Subscriber::buffered)
+                .sum();
+    }
+
+    private void reapIdleSubscribers() {
+        long now = System.nanoTime();
+        this.subscribers.values()
+                .stream()
+                .filter(subscriber -> subscriber.isIdle(now))
+                .forEach(subscriber -> {
+                    log.warn("Disconnecting idle subscriber {} of stream {} with {} undelivered events",
+                            subscriber.id, this.name, subscriber.buffered());
+                    this.idleDisconnects.increment();
+                    subscriber.disconnect();
+                });
+    }
+
+    private final class Subscriber {
+
+        private final long id;
+        private final String topic;
+        private final FluxSink<SequencedEvent<T>> sink;
+        private final Deque<SequencedEvent<T>> buffer = new ArrayDeque<>();
+        private final AtomicInteger drainRequests = new AtomicInteger();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile long lastProgressNanos = System.nanoTime();
+
+        private Subscriber(long id, String topic, FluxSink<SequencedEvent<T>> sink) {
+            this.id = id;
+            this.topic = topic;
+            this.sink = sink;
+        }
+
+        /**
+         * Buffers the event according to the overflow policy, false when the subscriber was disconnected instead.
+         */
+        private boolean offer(SequencedEvent<T> event) {
+            synchronized (this.buffer) {
+                if (this.buffer.size() < bufferSize) {
+                    enqueue(event);
+                    return true;
+                }
+                if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    this.buffer.pollFirst();
+                    this.buffer.offerLast(event);
+                }
+            }
+
+            if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                log.warn("Disconnecting subscriber {} of stream {}, its buffer of {} events is full", this.id, name, bufferSize);
+                overflowDisconnects.increment();
+                disconnect();
+                return false;
+            }
+            this.dropped.incrementAndGet();
+            droppedEvents.increment();
+            return true;
+        }
+
+        /**
+         * Replayed events are bounded by the ring and bypass the overflow policy.
+         */
+        private void replay(SequencedEvent<T> event) {
+            synchronized (this.buffer) {
+                enqueue(event);
+            }
+        }
+
+        /**
+         * Called with the buffer lock held. The idle clock starts when an event arrives in an empty buffer, a
+         * subscriber with nothing to take is never idle however long the topic stayed quiet.
+         */
+        private void enqueue(SequencedEvent<T> event) {
+            if (this.buffer.isEmpty()) {
+                this.lastProgressNanos = System.nanoTime();
+            }
+            this.buffer.offerLast(event);
+        }
+
+        private void drain() {
+            if (this.drainRequests.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (this.sink.requestedFromDownstream() > 0 && !this.sink.isCancelled()) {
+                    SequencedEvent<T> event;
+                    synchronized (this.buffer) {
+                        event = this.buffer.pollFirst();
+                    }
+                    if (event == null) {
+                        break;
+                    }
+                    this.lastProgressNanos = System.nanoTime();
+                    this.delivered.incrementAndGet();
+                    this.sink.next(event);
+                }
+                missed = this.drainRequests.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private int buffered() {
+            synchronized (this.buffer) {
+                return this.buffer.size();
+            }
+        }
+
+        /**
+         * A subscriber is idle when it has events waiting and took none of them for the idle timeout, counted from
+         * its last delivery or from the arrival of the oldest waiting event, whichever is later.
+         */
+        private boolean isIdle(long now) {
+            return buffered() > 0 && now - this.lastProgressNanos > idleTimeoutNanos;
+        }
+
+        private void disconnect() {
+            unregister(this);
+            this.sink.complete();
+        }
+
+        private SubscriberStats stats(long now) {
+            return new SubscriberStats(this.id, this.topic, buffered(), this.delivered.get(), this.dropped.get(),
+                    Duration.ofNanos(now - this.lastProgressNanos).toMillis());
+        }
+    }
+}
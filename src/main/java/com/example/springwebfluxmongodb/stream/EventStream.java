@@ -0,0 +1,38 @@
+package com.example.springwebfluxmongodb.stream;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Fan-out of write events (saved movie infos, saved reviews) to the streaming endpoints.
+ */
+public interface EventStream<T> {
+
+    /**
+     * Publish an event to the subscribers of this stream. Publishing never fails the write that produced the event.
+     */
+    Mono<Void> publish(T event);
+
+    default Flux<T> subscribe() {
+        return subscribe(null);
+    }
+
+    /**
+     * Subscribe to the events of one topic (see {@link StreamTopics}), or to every event when the topic is null.
+     */
+    default Flux<T> subscribe(String topic) {
+        return subscribe(topic, null).map(SequencedEvent::getEvent);
+    }
+
+    /**
+     * Subscribe with the sequence id of every event, replaying the retained events after lastEventId when given.
+     * A stream shared by several nodes gives an event the same id on every node, so a client can resume on any of
+     * them.
+     */
+    Flux<SequencedEvent<T>> subscribe(String topic, Long lastEventId);
+
+    /**
+     * Ticks at the heartbeat interval of the stream.
+     */
+    Flux<Long> heartbeats();
+}
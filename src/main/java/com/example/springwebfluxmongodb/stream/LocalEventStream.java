@@ -0,0 +1,31 @@
+package com.example.springwebfluxmongodb.stream;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory stream, subscribers only see the events published on this node.
+ */
+public class LocalEventStream<T> implements EventStream<T> {
+
+    private final Broadcaster<T> broadcaster;
+
+    public LocalEventStream(Broadcaster<T> broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    @Override
+    public Mono<Void> publish(T event) {
+        return Mono.fromRunnable(() -> this.broadcaster.publish(event));
+    }
+
+    @Override
+    public Flux<SequencedEvent<T>> subscribe(String topic, Long lastEventId) {
+        return this.broadcaster.subscribe(topic, lastEventId);
+    }
+
+    @Override
+    public Flux<Long> heartbeats() {
+        return this.broadcaster.heartbeats();
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.springwebfluxmongodb.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stream shared by every node through a capped collection. Publishing appends an event to the collection and each
+ * node tails it with a tailable cursor into its local broadcaster, so a subscriber sees the writes of all nodes.
+ * Tailable cursors work on a standalone mongod, no replica set is needed.
+ * <p>
+ * Event ids come from a counter document shared by the nodes, so an event has the same id on every node. The nodes
+ * also see the events in the same order, the insertion order of the capped collection, so a client that reconnects
+ * to another node with the id of the last event it saw resumes right after that event. A node keeps the most recent
+ * events of the collection for replay when it starts.
+ */
+@Slf4j
+public class MongoEventStream<T> implements EventStream<T>, InitializingBean, DisposableBean {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration RETAIL_DELAY = Duration.ofSeconds(1);
+    private static final String SEQUENCES_COLLECTION_NAME = "streamSequences";
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final String collectionName;
+    private final Class<T> payloadType;
+    private final long cappedSizeBytes;
+    private final long maxDocuments;
+
+    private final Broadcaster<T> broadcaster;
+
+    /**
+     * Ids of the events already handed to the broadcaster. A re-opened cursor starts again at the beginning of the
+     * capped collection, this set (as large as the collection) keeps those events from being delivered twice.
+     * Only touched by the serial tail subscription.
+     */
+    private final Set<String> deliveredEventIds;
+
+    private Disposable tailSubscription;
+
+    public MongoEventStream(ReactiveMongoTemplate reactiveMongoTemplate, String collectionName, Class<T> payloadType,
+                            long cappedSizeBytes, long maxDocuments, Broadcaster<T> broadcaster) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.collectionName = collectionName;
+        this.payloadType = payloadType;
+        this.cappedSizeBytes = cappedSizeBytes;
+        this.maxDocuments = maxDocuments;
+        this.broadcaster = broadcaster;
+        this.deliveredEventIds = Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxDocuments;
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> publish(T event) {
+        return nextSequence()
+                .flatMap(sequence -> this.reactiveMongoTemplate.insert(new StreamEvent(null, sequence, event, Instant.now()),
+                        this.collectionName))
+                .then()
+                .onErrorResume(exception -> {
+                    log.error("Could not append event to {} : {}", this.collectionName, exception.getMessage(), exception);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Long> nextSequence() {
+        return this.reactiveMongoTemplate.findAndModify(
+                        Query.query(Criteria.where("_id").is(this.collectionName)),
+                        new Update().inc("value", 1L),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class,
+                        SEQUENCES_COLLECTION_NAME)
+                .map(counter -> counter.get("value", Number.class).longValue());
+    }
+
+    @Override
+    public Flux<SequencedEvent<T>> subscribe(String topic, Long lastEventId) {
+        return this.broadcaster.subscribe(topic, lastEventId);
+    }
+
+    @Override
+    public Flux<Long> heartbeats() {
+        return this.broadcaster.heartbeats();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        ensureCappedCollection()
+                .thenMany(skipExistingEvents())
+                .thenMany(retainRecentEvents())
+                .then()
+                .block(STARTUP_TIMEOUT);
+
+        this.tailSubscription = tail()
+                .subscribe(event -> this.broadcaster.publish(event.getSequence(), this.payloadType.cast(event.getPayload())));
+    }
+
+    @Override
+    public void destroy() {
+        if (this.tailSubscription != null) {
+            this.tailSubscription.dispose();
+        }
+    }
+
+    private Mono<Void> ensureCappedCollection() {
+        return this.reactiveMongoTemplate.collectionExists(this.collectionName)
+                .flatMap(exists -> exists ? Mono.<Void>empty() : createCappedCollection());
+    }
+
+    private Mono<Void> createCappedCollection() {
+        CollectionOptions options = CollectionOptions.empty()
+                .capped()
+                .size(this.cappedSizeBytes)
+                .maxDocuments(this.maxDocuments);
+
+        // the seed document keeps tailable cursors alive, a cursor on an empty capped collection is closed right away
+        return this.reactiveMongoTemplate.createCollection(this.collectionName, options)
+                .then(this.reactiveMongoTemplate.insert(new StreamEvent(null, 0, null, Instant.now()), this.collectionName))
+                .then()
+                .onErrorResume(exception -> {
+                    log.info("Capped collection {} was not created here : {}", this.collectionName, exception.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Flux<StreamEvent> skipExistingEvents() {
+        Query idsOnly = new Query();
+        idsOnly.fields().include("_id");
+
+        return this.reactiveMongoTemplate.find(idsOnly, StreamEvent.class, this.collectionName)
+                .doOnNext(event -> this.deliveredEventIds.add(event.getId()));
+    }
+
+    private Flux<StreamEvent> retainRecentEvents() {
+        Query latestFirst = new Query()
+                .with(Sort.by(Sort.Direction.DESC, "$natural"))
+                .limit(this.broadcaster.getReplayBufferSize());
+
+        return this.reactiveMongoTemplate.find(latestFirst, StreamEvent.class, this.collectionName)
+                .filter(event -> this.payloadType.isInstance(event.getPayload()))
+                .collectList()
+                .flatMapIterable(latest -> {
+                    Collections.reverse(latest);
+                    return latest;
+                })
+                .doOnNext(event -> this.broadcaster.retain(event.getSequence(), this.payloadType.cast(event.getPayload())));
+    }
+
+    private Flux<StreamEvent> tail() {
+        return Flux.defer(() -> this.reactiveMongoTemplate.tail(new Query(), StreamEvent.class, this.collectionName))
+                .repeatWhen(completed -> completed.delayElements(RETAIL_DELAY))
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, RETAIL_DELAY)
+                        .doBeforeRetry(retrySignal -> log.warn("Tailing {} failed, re-opening the cursor : {}",
+                                this.collectionName, retrySignal.failure().getMessage())))
+                .filter(event -> this.payloadType.isInstance(event.getPayload()) && this.deliveredEventIds.add(event.getId()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.springwebfluxmongodb.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Arrays;
+
+/**
+ * Newline delimited JSON view of an {@link EventStream}, one event per line. An empty line is written at the
+ * heartbeat interval, NDJSON readers skip it, like the comment frame of {@link ServerSentEvents} it keeps proxies
+ * from closing a quiet stream and fails the write to a dead connection, which cancels its subscription.
+ */
+public final class NdjsonStreams {
+
+    static final byte[] HEARTBEAT_LINE = {'\n'};
+
+    private NdjsonStreams() {
+    }
+
+    /**
+     * Writes the given events, taken from the eventStream, with the heartbeat lines of that stream in between.
+     */
+    public static <T> Flux<DataBuffer> of(EventStream<?> eventStream, Flux<T> events, ObjectMapper objectMapper) {
+        return Flux.defer(() -> {
+            Sinks.One<Boolean> eventsDone = Sinks.one();
+
+            Flux<DataBuffer> lines = events
+                    .concatMap(event -> Mono.fromCallable(() -> line(objectMapper.writeValueAsBytes(event))))
+                    .doFinally(signalType -> eventsDone.tryEmitValue(Boolean.TRUE));
+
+            Flux<DataBuffer> heartbeats = eventStream.heartbeats()
+                    .map(tick -> DefaultDataBufferFactory.sharedInstance.wrap(HEARTBEAT_LINE))
+                    .takeUntilOther(eventsDone.asMono());
+
+            return Flux.merge(lines, heartbeats);
+        });
+    }
+
+    private static DataBuffer line(byte[] json) {
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return DefaultDataBufferFactory.sharedInstance.wrap(line);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.springwebfluxmongodb.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * An event with its sequence id, see {@link EventStream#subscribe(String, Long)}.
+ */
+@Data
+@AllArgsConstructor
+public class SequencedEvent<T> {
+
+    private long id;
+
+    private T event;
+}
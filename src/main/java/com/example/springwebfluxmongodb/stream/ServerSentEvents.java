@@ -0,0 +1,36 @@
+package com.example.springwebfluxmongodb.stream;
+
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Server-sent events view of an {@link EventStream}. Every event carries its sequence id, so a reconnecting client
+ * (browsers do this on their own) sends it back as Last-Event-ID and only gets the gap replayed. A comment frame
+ * is sent at the heartbeat interval, it keeps proxies from closing a quiet stream and detects dead connections.
+ */
+public final class ServerSentEvents {
+
+    static final String HEARTBEAT_COMMENT = "heartbeat";
+
+    private ServerSentEvents() {
+    }
+
+    public static <T> Flux<ServerSentEvent<T>> of(EventStream<T> eventStream, String topic, Long lastEventId) {
+        return Flux.defer(() -> {
+            Sinks.One<Boolean> eventsDone = Sinks.one();
+
+            Flux<ServerSentEvent<T>> events = eventStream.subscribe(topic, lastEventId)
+                    .map(event -> ServerSentEvent.builder(event.getEvent())
+                            .id(String.valueOf(event.getId()))
+                            .build())
+                    .doFinally(signalType -> eventsDone.tryEmitValue(Boolean.TRUE));
+
+            Flux<ServerSentEvent<T>> heartbeats = eventStream.heartbeats()
+                    .map(tick -> ServerSentEvent.<T>builder().comment(HEARTBEAT_COMMENT).build())
+                    .takeUntilOther(eventsDone.asMono());
+
+            return Flux.merge(events, heartbeats);
+        });
+    }
+}
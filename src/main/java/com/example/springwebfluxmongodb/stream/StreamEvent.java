@@ -0,0 +1,27 @@
+package com.example.springwebfluxmongodb.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+import java.time.Instant;
+
+/**
+ * Entry of a capped event collection. The payload keeps its type hint, a null payload marks the seed document.
+ * The sequence is allocated when the event is published and is the event id on every node.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamEvent {
+
+    @Id
+    private String id;
+
+    private long sequence;
+
+    private Object payload;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,44 @@
+package com.example.springwebfluxmongodb.stream;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.Review;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Topic keys of the filtered streams, shared by the broadcasters that route events and the endpoints that subscribe.
+ */
+public final class StreamTopics {
+
+    private StreamTopics() {
+    }
+
+    public static String movieInfoYear(Integer year) {
+        return "year:" + year;
+    }
+
+    public static String movieInfoName(String name) {
+        return "name:" + name;
+    }
+
+    public static String reviewMovieInfoId(Long movieInfoId) {
+        return "movieInfoId:" + movieInfoId;
+    }
+
+    public static Collection<String> of(MovieInfo movieInfo) {
+        List<String> topics = new ArrayList<>(2);
+        if (movieInfo.getYear() != null) {
+            topics.add(movieInfoYear(movieInfo.getYear()));
+        }
+        if (movieInfo.getName() != null) {
+            topics.add(movieInfoName(movieInfo.getName()));
+        }
+        return topics;
+    }
+
+    public static Collection<String> of(Review review) {
+        return review.getMovieInfoId() == null ? List.of() : List.of(reviewMovieInfoId(review.getMovieInfoId()));
+    }
+}
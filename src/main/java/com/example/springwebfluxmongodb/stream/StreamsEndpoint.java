@@ -0,0 +1,31 @@
+package com.example.springwebfluxmongodb.stream;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-subscriber lag and drops of every stream, at /actuator/streams. Aggregates are published as the
+ * stream.subscribers, stream.buffered, stream.dropped and stream.disconnected metrics.
+ */
+@Component
+@Endpoint(id = "streams")
+public class StreamsEndpoint {
+
+    private final List<Broadcaster<?>> broadcasters;
+
+    public StreamsEndpoint(List<Broadcaster<?>> broadcasters) {
+        this.broadcasters = broadcasters;
+    }
+
+    @ReadOperation
+    public Map<String, List<SubscriberStats>> subscribers() {
+        Map<String, List<SubscriberStats>> subscribers = new LinkedHashMap<>();
+        this.broadcasters.forEach(broadcaster -> subscribers.put(broadcaster.getName(), broadcaster.subscriberStats()));
+        return subscribers;
+    }
+}
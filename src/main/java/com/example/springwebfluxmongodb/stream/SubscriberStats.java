@@ -0,0 +1,24 @@
+package com.example.springwebfluxmongodb.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Snapshot of one stream subscriber, lag is the number of events buffered for it and not delivered yet.
+ */
+@Data
+@AllArgsConstructor
+public class SubscriberStats {
+
+    private long subscriberId;
+
+    private String topic;
+
+    private int lag;
+
+    private long delivered;
+
+    private long dropped;
+
+    private long millisSinceLastDelivery;
+}
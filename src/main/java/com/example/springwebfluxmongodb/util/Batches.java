@@ -0,0 +1,57 @@
+package com.example.springwebfluxmongodb.util;
+
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Size and time bounded batching that only emits what was requested. Reactor 3.4's bufferTimeout emits a timed out
+ * batch whether it was requested or not, and fails with an overflow when the consumer is still busy with earlier
+ * batches. Here a timer tick is only a flush marker in the stream: it ends the current batch when it is read,
+ * and it is read at the pace of the consumer like the elements.
+ */
+public final class Batches {
+
+    private Batches() {
+    }
+
+    /**
+     * @param maxWait - a non-empty batch is cut at the latest maxWait after it was started, once it is requested
+     */
+    public static <T> Flux<List<T>> of(Flux<T> source, int maxSize, Duration maxWait) {
+        return source.map(Optional::of)
+                .publish(elements -> elements.mergeWith(Flux.interval(maxWait)
+                        // ticks nobody asked for are dropped, the next one flushes the same batch
+                        .onBackpressureDrop()
+                        .map(tick -> Optional.<T>empty())
+                        .takeUntilOther(elements.then())))
+                .transform(items -> Flux.defer(() -> items.bufferUntil(new BatchEnd<>(maxSize))))
+                .map(batch -> batch.stream().flatMap(Optional::stream).collect(Collectors.toList()))
+                .filter(batch -> !batch.isEmpty());
+    }
+
+    /**
+     * Ends a batch on its max size, or on a flush marker once it holds an element. One per subscription.
+     */
+    private static final class BatchEnd<T> implements Predicate<Optional<T>> {
+        private final int maxSize;
+        private int size;
+
+        private BatchEnd(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public boolean test(Optional<T> item) {
+            if (item.isPresent() ? ++this.size < this.maxSize : this.size == 0) {
+                return false;
+            }
+            this.size = 0;
+            return true;
+        }
+    }
+}
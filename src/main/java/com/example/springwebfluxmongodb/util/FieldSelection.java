@@ -0,0 +1,85 @@
+package com.example.springwebfluxmongodb.util;
+
+import com.example.springwebfluxmongodb.exceptions.InvalidQueryParameterException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+
+import java.beans.PropertyDescriptor;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Sparse fieldset requested with the fields query parameter. It is pushed down to Mongo as a projection,
+ * and applied in memory to documents that are already loaded (cache hits).
+ */
+public final class FieldSelection {
+
+    private static final FieldSelection ALL = new FieldSelection(Collections.emptySet());
+
+    private final Set<String> fields;
+
+    private FieldSelection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldSelection all() {
+        return ALL;
+    }
+
+    /**
+     * @param fieldsParameter - comma separated property names, null or blank selects every field
+     * @param documentType - the document the properties belong to
+     * @param idProperty - always selected, so clients can address what they read
+     */
+    public static FieldSelection parse(String fieldsParameter, Class<?> documentType, String idProperty) {
+        if (fieldsParameter == null || fieldsParameter.isBlank()) {
+            return ALL;
+        }
+
+        Set<String> knownProperties = Arrays.stream(BeanUtils.getPropertyDescriptors(documentType))
+                .map(PropertyDescriptor::getName)
+                .filter(property -> !"class".equals(property))
+                .collect(Collectors.toSet());
+
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add(idProperty);
+        for (String field : fieldsParameter.split(",")) {
+            String trimmedField = field.trim();
+            if (trimmedField.isEmpty()) {
+                continue;
+            }
+            if (!knownProperties.contains(trimmedField)) {
+                throw new InvalidQueryParameterException("Unknown field : " + trimmedField);
+            }
+            fields.add(trimmedField);
+        }
+        return new FieldSelection(Collections.unmodifiableSet(fields));
+    }
+
+    public boolean isAll() {
+        return fields.isEmpty();
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return a copy of the document with only the selected properties set, the document itself when all are selected
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T apply(T document) {
+        if (isAll()) {
+            return document;
+        }
+
+        BeanWrapper source = new BeanWrapperImpl(document);
+        BeanWrapper target = new BeanWrapperImpl(BeanUtils.instantiateClass(document.getClass()));
+        fields.forEach(field -> target.setPropertyValue(field, source.getPropertyValue(field)));
+        return (T) target.getWrappedInstance();
+    }
+}
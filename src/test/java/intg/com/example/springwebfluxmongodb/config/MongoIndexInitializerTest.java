@@ -0,0 +1,89 @@
+package com.example.springwebfluxmongodb.config;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.Review;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@ActiveProfiles("test")
+@Import(MongoIndexInitializer.class)
+class MongoIndexInitializerTest {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mongoMappingContext;
+
+    @Test
+    void startup_DeclaredIndexesExist() {
+        StepVerifier.create(indexNames(MovieInfo.class))
+                .assertNext(indexNames -> assertTrue(indexNames.containsAll(List.of("name", "year", "cast_id")), indexNames::toString))
+                .verifyComplete();
+
+        StepVerifier.create(indexNames(Review.class))
+                .assertNext(indexNames -> assertTrue(indexNames.contains("movieInfoId_rating"), indexNames::toString))
+                .verifyComplete();
+    }
+
+    @Test
+    void declaredProbes_FailMode_StartupSucceeds() {
+        MongoIndexInitializer mongoIndexInitializer = new MongoIndexInitializer(reactiveMongoTemplate, mongoMappingContext);
+        ReflectionTestUtils.setField(mongoIndexInitializer, "collscanCheck", MongoIndexInitializer.CollscanCheck.FAIL);
+
+        assertDoesNotThrow(mongoIndexInitializer::afterPropertiesSet);
+    }
+
+    @Test
+    void unindexedProbe_FailMode_StartupFails() {
+        MongoIndexInitializer mongoIndexInitializer = withUnindexedProbe(MongoIndexInitializer.CollscanCheck.FAIL);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, mongoIndexInitializer::afterPropertiesSet);
+        assertTrue(exception.getMessage().contains("MovieInfoRepository.findByReleaseDate"));
+    }
+
+    @Test
+    void unindexedProbe_WarnMode_StartupSucceeds() {
+        MongoIndexInitializer mongoIndexInitializer = withUnindexedProbe(MongoIndexInitializer.CollscanCheck.WARN);
+
+        assertDoesNotThrow(mongoIndexInitializer::afterPropertiesSet);
+    }
+
+    private MongoIndexInitializer withUnindexedProbe(MongoIndexInitializer.CollscanCheck collscanCheck) {
+        MongoIndexInitializer mongoIndexInitializer = new MongoIndexInitializer(reactiveMongoTemplate, mongoMappingContext) {
+            @Override
+            Map<String, IndexProbe> queryProbes() {
+                Map<String, IndexProbe> probes = new LinkedHashMap<>(super.queryProbes());
+                probes.put("MovieInfoRepository.findByReleaseDate",
+                        new IndexProbe(MovieInfo.class, Query.query(Criteria.where("releaseDate").exists(true))));
+                return probes;
+            }
+        };
+        ReflectionTestUtils.setField(mongoIndexInitializer, "collscanCheck", collscanCheck);
+        return mongoIndexInitializer;
+    }
+
+    private Mono<List<String>> indexNames(Class<?> entityType) {
+        return reactiveMongoTemplate.indexOps(entityType).getIndexInfo()
+                .map(IndexInfo::getName)
+                .collectList();
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.springwebfluxmongodb.controller;
 
+import com.example.springwebfluxmongodb.domain.BulkInsertResult;
+import com.example.springwebfluxmongodb.domain.CursorPage;
 import com.example.springwebfluxmongodb.domain.MovieInfo;
 import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
 import org.junit.jupiter.api.AfterEach;
@@ -8,7 +10,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
@@ -16,6 +22,7 @@ import reactor.test.StepVerifier;
 
 import java.net.URI;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -74,6 +81,76 @@ class MovieInfoControllerTest {
                 });
     }
 
+    @Test
+    void addMovieInfos_Bulk() {
+
+        String ndjson = String.join("\n",
+                "{\"name\": \"Batman v Superman\", \"year\": 2016, \"cast\": [\"Ben Affleck\"], \"releaseDate\": \"2016-03-25\"}",
+                "{\"name\": \"\", \"year\": -1, \"cast\": [\"Henry Cavill\"]}",
+                "{\"name\": \"Man of Steel\", \"year\": 2013, \"cast\": [\"Henry Cavill\"], \"releaseDate\": \"2013-06-14\"}");
+
+        webTestClient
+                .post()
+                .uri(MOVIE_INFO_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(BulkInsertResult.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    List<BulkInsertResult> results = Objects.requireNonNull(listEntityExchangeResult.getResponseBody());
+
+                    assertEquals(3, results.size());
+                    assertEquals(BulkInsertResult.Status.CREATED, results.get(0).getStatus());
+                    assertEquals(BulkInsertResult.Status.FAILED, results.get(1).getStatus());
+                    assertEquals("Movie info name must be present, Year must be greater than 0", results.get(1).getError());
+                    assertEquals(BulkInsertResult.Status.CREATED, results.get(2).getStatus());
+                    assertNotNull(results.get(2).getMovieInfoId());
+                });
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL)
+                .exchange()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(5);
+    }
+
+    @Test
+    void addMovieInfos_Bulk_PublishedToStream() {
+        String ndjson = "{\"name\":\"Bulk Streamed\",\"year\":2014,\"cast\":[\"Matthew McConaughey\"],\"releaseDate\":\"2014-11-07\"}\n";
+
+        webTestClient
+                .post()
+                .uri(MOVIE_INFO_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        Flux<MovieInfo> movieStreamFlux = webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "/stream?name=Bulk Streamed")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier
+                .create(movieStreamFlux)
+                .assertNext(movieInfoObject -> {
+                    assertEquals("Bulk Streamed", movieInfoObject.getName());
+                    assertNotNull(movieInfoObject.getMovieInfoId());
+                })
+                .thenCancel()
+                .verify();
+    }
+
     @Test
     void getAllMovies_Stream() {
 
@@ -113,6 +190,40 @@ class MovieInfoControllerTest {
                 .verify();
     }
 
+    @Test
+    void getAllMovies_SseStream() {
+
+        MovieInfo movieInfo = new MovieInfo(null, "Batman Begins2", 2005,
+                List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+        webTestClient
+                .post()
+                .uri(MOVIE_INFO_URL)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        Flux<ServerSentEvent<MovieInfo>> movieStreamFlux = webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "/stream/sse?year=2005")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<MovieInfo>>() {})
+                .getResponseBody();
+
+        StepVerifier
+                .create(movieStreamFlux)
+                .assertNext(event -> {
+                    assertNotNull(event.id());
+                    assert event.data() != null;
+                    assertEquals("Batman Begins2", event.data().getName());
+                })
+                .thenCancel()
+                .verify();
+    }
+
     @Test
     void getAllMovies() {
 
@@ -126,6 +237,86 @@ class MovieInfoControllerTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMovies_Paginated() {
+        List<MovieInfo> collected = new ArrayList<>();
+        String cursor = null;
+
+        do {
+            UriComponentsBuilder uriBuilder = UriComponentsBuilder
+                    .fromUriString(MOVIE_INFO_URL)
+                    .queryParam("limit", 1);
+            if (cursor != null) {
+                uriBuilder.queryParam("after", cursor);
+            }
+
+            EntityExchangeResult<List<MovieInfo>> page = webTestClient
+                    .get()
+                    .uri(uriBuilder.buildAndExpand().toUri())
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(MovieInfo.class)
+                    .returnResult();
+
+            collected.addAll(Objects.requireNonNull(page.getResponseBody()));
+            cursor = page.getResponseHeaders().getFirst(CursorPage.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertEquals(3, collected.size());
+        assertEquals(3, collected.stream().map(MovieInfo::getMovieInfoId).distinct().count());
+    }
+
+    @Test
+    void getAllMovies_Fields() {
+        URI uri = UriComponentsBuilder
+                .fromUriString(MOVIE_INFO_URL)
+                .queryParam("fields", "name,year")
+                .buildAndExpand()
+                .toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[0].movieInfoId").exists()
+                .jsonPath("$[0].name").exists()
+                .jsonPath("$[0].year").exists()
+                .jsonPath("$[0].cast").doesNotExist()
+                .jsonPath("$[0].releaseDate").doesNotExist();
+    }
+
+    @Test
+    void getMovieInfoById_UnknownField() {
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "/{id}?fields=budget", "abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getAllMovies_InvalidLimit() {
+        URI uri = UriComponentsBuilder
+                .fromUriString(MOVIE_INFO_URL)
+                .queryParam("limit", 0)
+                .buildAndExpand()
+                .toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void getAllMoviesBeforeYear() {
         URI uri = UriComponentsBuilder
@@ -144,6 +335,44 @@ class MovieInfoControllerTest {
                 .hasSize(2);
     }
 
+    @Test
+    void getAllMoviesBeforeYear_Paginated() {
+        URI uri = UriComponentsBuilder
+                .fromUriString(MOVIE_INFO_URL)
+                .queryParam("year", 2009)
+                .queryParam("limit", 1)
+                .buildAndExpand()
+                .toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .exists(CursorPage.NEXT_CURSOR_HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getMovieInfoByName_WithLimit() {
+        URI uri = UriComponentsBuilder
+                .fromUriString(MOVIE_INFO_URL)
+                .queryParam("name", "BatmanBegins")
+                .queryParam("limit", 1)
+                .buildAndExpand()
+                .toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void getMovieInfoById() {
 
@@ -208,6 +437,36 @@ class MovieInfoControllerTest {
                 .jsonPath("$.releaseDate").isEqualTo("2014-07-20");
     }
 
+    @Test
+    void patchMovieInfo_IfMatch() {
+        MovieInfo partialMovieInfo = new MovieInfo();
+        partialMovieInfo.setYear(2013);
+
+        webTestClient
+                .patch()
+                .uri(MOVIE_INFO_URL + "/{id}", "abc")
+                .header("If-Match", "\"0\"")
+                .bodyValue(partialMovieInfo)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals("ETag", "\"1\"")
+                .expectBody()
+                .jsonPath("$.year").isEqualTo(2013)
+                .jsonPath("$.name").isEqualTo("Dark Knight Rises")
+                .jsonPath("$.version").isEqualTo(1);
+
+        webTestClient
+                .patch()
+                .uri(MOVIE_INFO_URL + "/{id}", "abc")
+                .header("If-Match", "\"0\"")
+                .bodyValue(partialMovieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(412);
+    }
+
     @Test
     void deleteMovieById() {
 
@@ -218,4 +477,15 @@ class MovieInfoControllerTest {
                 .expectStatus()
                 .isNoContent();
     }
+
+    @Test
+    void deleteMovieById_NotFound() {
+
+        webTestClient
+                .delete()
+                .uri(MOVIE_INFO_URL + "/{id}", "def")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
 }
\ No newline at end of file
@@ -6,6 +6,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 import org.springframework.test.context.ActiveProfiles;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -13,6 +16,7 @@ import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -23,6 +27,12 @@ class MovieInfoRepositoryTest {
     @Autowired
     private MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mongoMappingContext;
+
     @BeforeEach
     void setUp() {
         List<MovieInfo> moviesInfoList = List.of(
@@ -41,6 +51,42 @@ class MovieInfoRepositoryTest {
         this.movieInfoRepository.deleteAll().block();
     }
 
+    @Test
+    void searchText() {
+        new MongoPersistentEntityIndexResolver(this.mongoMappingContext)
+                .resolveIndexFor(MovieInfo.class)
+                .forEach(index -> this.reactiveMongoTemplate.indexOps(MovieInfo.class).ensureIndex(index).block());
+
+        StepVerifier.create(this.movieInfoRepository.searchText("knight hardy", 0, 10).map(MovieInfo::getName))
+                .expectNext("Dark Knight Rises", "The Dark Knight")
+                .verifyComplete();
+
+        StepVerifier.create(this.movieInfoRepository.searchText("knight hardy", 1, 10).map(MovieInfo::getName))
+                .expectNext("The Dark Knight")
+                .verifyComplete();
+    }
+
+    @Test
+    void findByCastMemberAfter() {
+        StepVerifier.create(this.movieInfoRepository.findByCastMemberAfter("Christian Bale", null, 2, Set.of(), false))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        StepVerifier.create(this.movieInfoRepository.findByCastMemberAfter("Tom Hardy", null, 10, Set.of("name"), false))
+                .assertNext(movieInfo -> {
+                    assertEquals("Dark Knight Rises", movieInfo.getName());
+                    assertNull(movieInfo.getCast());
+                })
+                .verifyComplete();
+
+        StepVerifier.create(this.movieInfoRepository.findByCastMemberAfter("tom hardy", null, 10, Set.of(), false))
+                .verifyComplete();
+
+        StepVerifier.create(this.movieInfoRepository.findByCastMemberAfter("tom hardy", null, 10, Set.of(), true).map(MovieInfo::getMovieInfoId))
+                .expectNext("abc")
+                .verifyComplete();
+    }
+
     @Test
     void findAll() {
         Flux<MovieInfo> moviesInfoFlux = this.movieInfoRepository.findAll().log();
@@ -90,6 +136,30 @@ class MovieInfoRepositoryTest {
                 .verifyComplete();
     }
 
+    @Test
+    void findByYearBeforeAfter_Projected() {
+        StepVerifier.create(this.movieInfoRepository.findByYearBeforeAfter(2010, null, 10, Set.of("movieInfoId", "name")))
+                .thenConsumeWhile(movieInfo -> movieInfo.getName() != null && movieInfo.getYear() == null && movieInfo.getCast() == null)
+                .verifyComplete();
+
+        StepVerifier.create(this.movieInfoRepository.findByYearBeforeAfter(2010, null, 10, Set.of("movieInfoId", "name")).count())
+                .expectNext(2L)
+                .verifyComplete();
+    }
+
+    @Test
+    void findByYearBeforeAfter_Paginated() {
+        List<MovieInfo> firstPage = this.movieInfoRepository.findByYearBeforeAfter(2010, null, 1, Set.of()).collectList().block();
+
+        assertEquals(1, firstPage.size());
+        StepVerifier.create(this.movieInfoRepository.findByYearBeforeAfter(2010, firstPage.get(0).getMovieInfoId(), 10, Set.of()))
+                .assertNext(movieInfo -> {
+                    assertNotEquals(firstPage.get(0).getMovieInfoId(), movieInfo.getMovieInfoId());
+                    assertTrue(movieInfo.getYear() < 2010);
+                })
+                .verifyComplete();
+    }
+
     @Test
     void deleteMovieInfo() {
         this.movieInfoRepository.deleteById("abc").block();
@@ -0,0 +1,103 @@
+package com.example.springwebfluxmongodb.repository;
+
+import com.example.springwebfluxmongodb.domain.MovieRatingStats;
+import com.example.springwebfluxmongodb.domain.Review;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@ActiveProfiles("test")
+class MovieRatingStatsRepositoryTest {
+
+    @Autowired
+    private MovieRatingStatsRepository movieRatingStatsRepository;
+
+    @Autowired
+    private ReviewReactiveRepository reviewReactiveRepository;
+
+    @BeforeEach
+    void setUp() {
+        List<Review> reviews = List.of(
+                new Review("low", 1L, "Weak movie", 3.0),
+                new Review("mid", 1L, "Good movie", 5.0),
+                new Review("high", 1L, "Awesome movie", 8.0));
+
+        this.reviewReactiveRepository.saveAll(reviews).blockLast();
+        this.movieRatingStatsRepository.rebuildAll().block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.reviewReactiveRepository.deleteAll().block();
+        this.movieRatingStatsRepository.deleteAll().block();
+    }
+
+    @Test
+    void removeRating_Max_Recomputed() {
+        this.reviewReactiveRepository.deleteById("high").block();
+
+        StepVerifier.create(this.movieRatingStatsRepository.removeRating(1L, 8.0))
+                .assertNext(stats -> {
+                    assertEquals(2, stats.getCount());
+                    assertEquals(8.0, stats.getSum());
+                    assertEquals(3.0, stats.getMin());
+                    assertEquals(5.0, stats.getMax());
+                    assertNull(stats.getHistogram().get("8"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void removeRating_Min_Recomputed() {
+        this.reviewReactiveRepository.deleteById("low").block();
+
+        StepVerifier.create(this.movieRatingStatsRepository.removeRating(1L, 3.0))
+                .assertNext(stats -> {
+                    assertEquals(2, stats.getCount());
+                    assertEquals(5.0, stats.getMin());
+                    assertEquals(8.0, stats.getMax());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void removeRating_Last_StatsRemoved() {
+        this.reviewReactiveRepository.deleteAll().block();
+        this.reviewReactiveRepository.save(new Review("only", 2L, "Only review", 7.0)).block();
+        this.movieRatingStatsRepository.addRating(2L, 7.0).block();
+        this.reviewReactiveRepository.deleteById("only").block();
+
+        StepVerifier.create(this.movieRatingStatsRepository.removeRating(2L, 7.0))
+                .verifyComplete();
+        StepVerifier.create(this.movieRatingStatsRepository.findById(2L))
+                .verifyComplete();
+    }
+
+    @Test
+    void rebuildAll_ReplacesDriftedAndRemovesUnrated() {
+        this.movieRatingStatsRepository.addRating(1L, 10.0).block();
+        this.movieRatingStatsRepository.addRating(3L, 6.0).block();
+
+        this.movieRatingStatsRepository.rebuildAll().block();
+
+        StepVerifier.create(this.movieRatingStatsRepository.findById(1L))
+                .assertNext(stats -> {
+                    assertEquals(3, stats.getCount());
+                    assertEquals(16.0, stats.getSum());
+                    assertEquals(8.0, stats.getMax());
+                    assertNull(stats.getHistogram().get("10"));
+                })
+                .verifyComplete();
+        StepVerifier.create(this.movieRatingStatsRepository.findById(3L))
+                .verifyComplete();
+    }
+}
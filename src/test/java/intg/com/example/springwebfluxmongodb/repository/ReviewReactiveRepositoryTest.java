@@ -0,0 +1,98 @@
+package com.example.springwebfluxmongodb.repository;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.Review;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@ActiveProfiles("test")
+class ReviewReactiveRepositoryTest {
+
+    @Autowired
+    private ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    private MovieInfoRepository movieInfoRepository;
+
+    @BeforeEach
+    void setUp() {
+        List<MovieInfo> moviesInfoList = List.of(
+                new MovieInfo("1", "BatmanBegins", 2005,
+                        List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("2", "The Dark Knight", 2008,
+                        List.of("Christian Bale", "Heath Ledger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("3", "Dark Knight Rises", 2012,
+                        List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        List<Review> reviews = List.of(
+                new Review(null, 1L, "Good", 7.0),
+                new Review(null, 1L, "Great", 8.0),
+                new Review(null, 2L, "Awesome", 9.0),
+                new Review(null, 2L, "Awesome", 10.0),
+                new Review(null, 3L, "Only one review", 10.0),
+                // no movie info, left out of the join
+                new Review(null, 4L, "Unknown movie", 10.0),
+                new Review(null, 4L, "Unknown movie", 10.0));
+
+        this.movieInfoRepository.saveAll(moviesInfoList).blockLast();
+        this.reviewReactiveRepository.saveAll(reviews).blockLast();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.reviewReactiveRepository.deleteAll().block();
+        this.movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void findProjectedByMovieInfoIdIn() {
+        StepVerifier.create(this.reviewReactiveRepository.findProjectedByMovieInfoIdIn(List.of(1L, 2L), Set.of("reviewId", "rating")))
+                .recordWith(ArrayList::new)
+                .thenConsumeWhile(review -> true)
+                .consumeRecordedWith(reviews -> {
+                    assertEquals(4, reviews.size());
+                    reviews.forEach(review -> {
+                        assertNotNull(review.getRating());
+                        assertNull(review.getComment());
+                        assertNull(review.getMovieInfoId());
+                    });
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findTopRated() {
+        StepVerifier.create(this.reviewReactiveRepository.findTopRated(10, 2, null))
+                .assertNext(topRatedMovie -> {
+                    assertEquals("The Dark Knight", topRatedMovie.getMovieInfo().getName());
+                    assertEquals(9.5, topRatedMovie.getAverageRating());
+                    assertEquals(2L, topRatedMovie.getReviewCount());
+                })
+                .assertNext(topRatedMovie -> assertEquals("1", topRatedMovie.getMovieInfo().getMovieInfoId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void findTopRated_ByYearAndLimit() {
+        StepVerifier.create(this.reviewReactiveRepository.findTopRated(1, 1, 2005))
+                .assertNext(topRatedMovie -> assertEquals("BatmanBegins", topRatedMovie.getMovieInfo().getName()))
+                .verifyComplete();
+
+        StepVerifier.create(this.reviewReactiveRepository.findTopRated(1, 1, null))
+                .assertNext(topRatedMovie -> assertEquals("Dark Knight Rises", topRatedMovie.getMovieInfo().getName()))
+                .verifyComplete();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.springwebfluxmongodb.router;
 
+import com.example.springwebfluxmongodb.domain.CursorPage;
 import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.repository.MovieRatingStatsRepository;
 import com.example.springwebfluxmongodb.repository.ReviewReactiveRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,6 +29,9 @@ class ReviewRouterTest {
     @Autowired
     ReviewReactiveRepository reviewReactiveRepository;
 
+    @Autowired
+    MovieRatingStatsRepository movieRatingStatsRepository;
+
     static String REVIEW_URI = "/v1/reviews";
 
     @BeforeEach
@@ -43,6 +48,7 @@ class ReviewRouterTest {
     @AfterEach
     void tearDown() {
         this.reviewReactiveRepository.deleteAll().block();
+        this.movieRatingStatsRepository.deleteAll().block();
     }
 
     @Test
@@ -79,6 +85,88 @@ class ReviewRouterTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllReviews_Paginated() {
+
+        URI firstPageUri = UriComponentsBuilder
+                .fromUriString(REVIEW_URI)
+                .queryParam("limit", 2)
+                .buildAndExpand()
+                .toUri();
+
+        EntityExchangeResult<List<Review>> firstPage = webTestClient
+                .get()
+                .uri(firstPageUri)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2)
+                .returnResult();
+
+        String cursor = firstPage.getResponseHeaders().getFirst(CursorPage.NEXT_CURSOR_HEADER);
+        assert cursor != null;
+
+        URI secondPageUri = UriComponentsBuilder
+                .fromUriString(REVIEW_URI)
+                .queryParam("limit", 2)
+                .queryParam("after", cursor)
+                .buildAndExpand()
+                .toUri();
+
+        webTestClient
+                .get()
+                .uri(secondPageUri)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(CursorPage.NEXT_CURSOR_HEADER)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getRatingStats_RebuiltThenMaintained() {
+        this.movieRatingStatsRepository.rebuildAll().block();
+
+        webTestClient
+                .post()
+                .uri(REVIEW_URI)
+                .bodyValue(new Review(null, 1L, "Good movie", 6.0))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/stats?movieInfoId={id}", 1)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(3)
+                .jsonPath("$.average").isEqualTo(8.0)
+                .jsonPath("$.min").isEqualTo(6.0)
+                .jsonPath("$.histogram.9").isEqualTo(2);
+
+        webTestClient
+                .delete()
+                .uri(REVIEW_URI + "/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/stats?movieInfoId={id}", 2)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(0);
+    }
+
     @Test
     void updateReview() {
 
@@ -96,6 +184,81 @@ class ReviewRouterTest {
                 .jsonPath("$.rating").isEqualTo(9.5);
     }
 
+    @Test
+    void updateReview_RatingMovedToOtherMovie() {
+        this.movieRatingStatsRepository.rebuildAll().block();
+
+        webTestClient
+                .put()
+                .uri(REVIEW_URI + "/{id}", "abc")
+                .bodyValue(new Review("abc", 1L, "Excellent movie", 5.0))
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/stats?movieInfoId={id}", 1)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(3)
+                .jsonPath("$.min").isEqualTo(5.0)
+                .jsonPath("$.max").isEqualTo(9.0);
+
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/stats?movieInfoId={id}", 2)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(0);
+    }
+
+    @Test
+    void updateReview_MaxRatingChanged() {
+        this.reviewReactiveRepository.save(new Review(null, 2L, "Fine movie", 6.0)).block();
+        this.movieRatingStatsRepository.rebuildAll().block();
+
+        webTestClient
+                .put()
+                .uri(REVIEW_URI + "/{id}", "abc")
+                .bodyValue(new Review("abc", 2L, "Excellent movie", 7.0))
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/stats?movieInfoId={id}", 2)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.average").isEqualTo(6.5)
+                .jsonPath("$.min").isEqualTo(6.0)
+                .jsonPath("$.max").isEqualTo(7.0)
+                .jsonPath("$.histogram.8").doesNotExist();
+    }
+
+    @Test
+    void updateReview_StaleIfMatch() {
+
+        Review updatedReview = new Review("abc", 1L, "Next Awesome Movie", 9.5);
+
+        webTestClient
+                .put()
+                .uri(REVIEW_URI + "/{id}", "abc")
+                .header("If-Match", "\"7\"")
+                .bodyValue(updatedReview)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(412);
+    }
+
     @Test
     void deleteReviewById() {
 
@@ -107,6 +270,17 @@ class ReviewRouterTest {
                 .isNoContent();
     }
 
+    @Test
+    void deleteReviewById_NotFound() {
+
+        webTestClient
+                .delete()
+                .uri(REVIEW_URI + "/{id}", "def")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
     @Test
     void findReviewsByMovieInfoId() {
 
@@ -0,0 +1,96 @@
+package com.example.springwebfluxmongodb.stream;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@DataMongoTest
+@ActiveProfiles("test")
+class MongoEventStreamTest {
+
+    private static final String COLLECTION_NAME = "movieInfoEventsTest";
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private MongoEventStream<MovieInfo> publishingNode;
+    private MongoEventStream<MovieInfo> subscribedNode;
+
+    @BeforeEach
+    void setUp() {
+        this.publishingNode = new MongoEventStream<>(this.reactiveMongoTemplate, COLLECTION_NAME, MovieInfo.class, 1024 * 1024, 100, broadcaster());
+        this.publishingNode.afterPropertiesSet();
+
+        // an event written before the node started is not delivered to it
+        this.publishingNode.publish(movieInfo("old", "Batman Begins")).block();
+
+        this.subscribedNode = new MongoEventStream<>(this.reactiveMongoTemplate, COLLECTION_NAME, MovieInfo.class, 1024 * 1024, 100, broadcaster());
+        this.subscribedNode.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.publishingNode.destroy();
+        this.subscribedNode.destroy();
+        this.reactiveMongoTemplate.dropCollection(COLLECTION_NAME).block();
+    }
+
+    @Test
+    void publish_DeliveredToOtherNode() {
+        StepVerifier.create(this.subscribedNode.subscribe().take(2))
+                .then(() -> this.publishingNode.publish(movieInfo("abc", "The Dark Knight")).block())
+                .expectNextMatches(movieInfo -> movieInfo.getMovieInfoId().equals("abc"))
+                .then(() -> this.subscribedNode.publish(movieInfo("def", "Dark Knight Rises")).block())
+                .expectNextMatches(movieInfo -> movieInfo.getMovieInfoId().equals("def"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void resume_OnNodeStartedLater_ReplaysAfterSharedId() {
+        List<SequencedEvent<MovieInfo>> delivered = new ArrayList<>();
+        StepVerifier.create(this.subscribedNode.subscribe(null, null).take(3))
+                .recordWith(() -> delivered)
+                .then(() -> {
+                    this.publishingNode.publish(movieInfo("abc", "The Dark Knight")).block();
+                    this.subscribedNode.publish(movieInfo("def", "Dark Knight Rises")).block();
+                    this.publishingNode.publish(movieInfo("ghi", "Inception")).block();
+                })
+                .expectNextCount(3)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        // the client saw the first event on one node and reconnects to a node that did not run back then
+        MongoEventStream<MovieInfo> laterNode = new MongoEventStream<>(this.reactiveMongoTemplate, COLLECTION_NAME, MovieInfo.class, 1024 * 1024, 100, broadcaster());
+        laterNode.afterPropertiesSet();
+        try {
+            StepVerifier.create(laterNode.subscribe(null, delivered.get(0).getId()).take(2))
+                    .expectNext(delivered.get(1), delivered.get(2))
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(10));
+        } finally {
+            laterNode.destroy();
+        }
+    }
+
+    private static Broadcaster<MovieInfo> broadcaster() {
+        return new Broadcaster<>("movieInfos", 16, Broadcaster.OverflowPolicy.DROP_OLDEST, Duration.ofSeconds(15),
+                Duration.ofSeconds(60), 16, new SimpleMeterRegistry());
+    }
+
+    private static MovieInfo movieInfo(String id, String name) {
+        return new MovieInfo(id, name, 2008, List.of("Christian Bale"), LocalDate.parse("2008-07-18"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.example.springwebfluxmongodb.exceptions.DownstreamUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BulkheadTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    Bulkhead bulkhead = new Bulkhead("test", 1, meterRegistry);
+
+    @Test
+    void full_RejectsUntilReleased() {
+        Sinks.One<String> pending = Sinks.one();
+        bulkhead.apply(pending.asMono()).subscribe();
+        assertEquals(1, inFlight());
+
+        StepVerifier.create(bulkhead.apply(Mono.just("value")))
+                .expectError(DownstreamUnavailableException.class)
+                .verify();
+        assertEquals(1, meterRegistry.get("bulkhead.rejected").counter().count());
+
+        pending.tryEmitValue("value");
+        assertEquals(0, inFlight());
+
+        StepVerifier.create(bulkhead.apply(Mono.just("value")))
+                .expectNext("value")
+                .verifyComplete();
+    }
+
+    @Test
+    void failedAndCancelledCalls_ReleasePermit() {
+        StepVerifier.create(bulkhead.apply(Mono.error(new IllegalStateException("failed"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+        assertEquals(0, inFlight());
+
+        Disposable cancelled = bulkhead.apply(Mono.never()).subscribe();
+        assertEquals(1, inFlight());
+        cancelled.dispose();
+        assertEquals(0, inFlight());
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("bulkhead.inFlight").gauge().value();
+    }
+}
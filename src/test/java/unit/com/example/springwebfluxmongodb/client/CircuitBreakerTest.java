@@ -0,0 +1,182 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.example.springwebfluxmongodb.exceptions.DownstreamUnavailableException;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoClientException;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CircuitBreakerTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    MutableClock clock = new MutableClock();
+
+    CircuitBreaker circuitBreaker = new CircuitBreaker("test", 4, 0.5, Duration.ofSeconds(10), 2,
+            RetryPolicy::isRetryable, meterRegistry, clock);
+
+    @Test
+    void failureRateReached_Opens() {
+        succeed();
+        succeed();
+        fail();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        fail();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        StepVerifier.create(circuitBreaker.apply(Mono.just("value")))
+                .expectError(DownstreamUnavailableException.class)
+                .verify();
+        assertEquals(1, meterRegistry.get("circuitBreaker.transitions")
+                .tag("from", "CLOSED").tag("to", "OPEN").counter().count());
+    }
+
+    @Test
+    void notFound_NotAFailure() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(circuitBreaker.apply(Mono.error(new MovieInfoClientException("not found", 404))))
+                    .expectError(MovieInfoClientException.class)
+                    .verify();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_ClosesAfterSuccessfulTrials() {
+        open();
+        clock.advance(Duration.ofSeconds(10));
+
+        succeed();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_ReopensOnFailure() {
+        open();
+        clock.advance(Duration.ofSeconds(10));
+
+        fail();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_LimitsTrialCalls() {
+        open();
+        clock.advance(Duration.ofSeconds(10));
+        Sinks.One<String> pending = Sinks.one();
+
+        circuitBreaker.apply(pending.asMono()).subscribe();
+        circuitBreaker.apply(pending.asMono()).subscribe();
+
+        StepVerifier.create(circuitBreaker.apply(Mono.just("value")))
+                .expectError(DownstreamUnavailableException.class)
+                .verify();
+
+        pending.tryEmitValue("value");
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_CancelledTrialReleasesPermit() {
+        open();
+        clock.advance(Duration.ofSeconds(10));
+
+        circuitBreaker.apply(Mono.never()).subscribe().dispose();
+        circuitBreaker.apply(Mono.never()).subscribe().dispose();
+
+        succeed();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_StaleSuccessFromClosedIgnored() {
+        Sinks.One<String> slowCall = Sinks.one();
+        circuitBreaker.apply(slowCall.asMono()).subscribe();
+
+        open();
+        clock.advance(Duration.ofSeconds(10));
+        succeed();
+
+        slowCall.tryEmitValue("value");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_StaleCancelDoesNotAddPermit() {
+        Disposable slowCall = circuitBreaker.apply(Mono.never()).subscribe();
+
+        open();
+        clock.advance(Duration.ofSeconds(10));
+        circuitBreaker.apply(Mono.never()).subscribe();
+        circuitBreaker.apply(Mono.never()).subscribe();
+
+        slowCall.dispose();
+
+        StepVerifier.create(circuitBreaker.apply(Mono.just("value")))
+                .expectError(DownstreamUnavailableException.class)
+                .verify();
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void succeed() {
+        StepVerifier.create(circuitBreaker.apply(Mono.just("value")))
+                .expectNext("value")
+                .verifyComplete();
+    }
+
+    private void fail() {
+        StepVerifier.create(circuitBreaker.apply(Mono.error(new MovieInfoServerException("unavailable"))))
+                .expectError(MovieInfoServerException.class)
+                .verify();
+    }
+
+    static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            this.instant = this.instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.instant;
+        }
+    }
+}
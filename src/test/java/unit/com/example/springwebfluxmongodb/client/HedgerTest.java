@@ -0,0 +1,85 @@
+package com.example.springwebfluxmongodb.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgerTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AtomicInteger attempts = new AtomicInteger();
+
+    AtomicInteger cancellations = new AtomicInteger();
+
+    @Test
+    void slowCall_HedgeWinsAndPrimaryCancelled() {
+        Hedger hedger = hedger(Duration.ofMillis(20), 10);
+
+        StepVerifier.create(hedger.apply(this::firstSlowThenFast))
+                .expectNext("attempt 2")
+                .verifyComplete();
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, cancellations.get());
+        assertEquals(1, meterRegistry.get("restClient.hedges").tag("outcome", "won").counter().count());
+    }
+
+    @Test
+    void fastCall_NotHedged() {
+        Hedger hedger = hedger(Duration.ofSeconds(1), 10);
+
+        StepVerifier.create(hedger.apply(() -> Mono.fromSupplier(() -> "attempt " + attempts.incrementAndGet())))
+                .expectNext("attempt 1")
+                .verifyComplete();
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void budgetExhausted_WaitsForPrimary() {
+        Hedger hedger = hedger(Duration.ofMillis(20), 0);
+
+        StepVerifier.create(hedger.apply(this::firstSlowThenFast))
+                .expectNext("attempt 1")
+                .verifyComplete();
+
+        assertEquals(1, attempts.get());
+        assertEquals(1, meterRegistry.get("restClient.hedges").tag("outcome", "budgetExhausted").counter().count());
+    }
+
+    @Test
+    void adaptiveDelay_PercentileOfRecentLatencies() {
+        Hedger hedger = new Hedger("test", true, Duration.ZERO, 0.95, Duration.ofMillis(1), 0.1, 10, meterRegistry);
+        assertNull(hedger.hedgeDelay());
+
+        for (int i = 1; i <= 100; i++) {
+            hedger.recordLatency(Duration.ofMillis(i).toNanos());
+        }
+
+        assertEquals(Duration.ofMillis(95), hedger.hedgeDelay());
+        assertTrue(meterRegistry.find("restClient.hedges").counters().size() > 0);
+    }
+
+    private Mono<String> firstSlowThenFast() {
+        int attempt = attempts.incrementAndGet();
+        Mono<String> answer = Mono.just("attempt " + attempt);
+        if (attempt == 1) {
+            return answer.delayElement(Duration.ofMillis(300))
+                    .doOnCancel(cancellations::incrementAndGet);
+        }
+        return answer;
+    }
+
+    private Hedger hedger(Duration delay, int budgetMaxTokens) {
+        return new Hedger("test", true, delay, 0.95, Duration.ofMillis(1), 0.1, budgetMaxTokens, meterRegistry);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoviesInfoRestClientTest {
+
+    static final String MOVIE_INFO_JSON = "{\"movieInfoId\":\"abc\",\"name\":\"Batman Begins\",\"year\":2005,\"cast\":[\"Christian Bale\"]}";
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    RestClientTestSupport support = new RestClientTestSupport();
+
+    MoviesInfoRestClient moviesInfoRestClient;
+
+    @BeforeEach
+    void setUp() {
+        moviesInfoRestClient = new MoviesInfoRestClient(support.webClient, RestClientTestSupport.instrumentation(meterRegistry), meterRegistry,
+                RestClientTestSupport.retryPolicy(meterRegistry, 0), RestClientTestSupport.resilienceRegistry(meterRegistry), 100);
+        ReflectionTestUtils.setField(moviesInfoRestClient, "moviesInfoURL", "http://movies/v1/movieInfos");
+    }
+
+    @Test
+    void unavailable_ServesLastGoodMovieInfo() {
+        support.respond(HttpStatus.OK, MOVIE_INFO_JSON, null);
+        support.respond(HttpStatus.SERVICE_UNAVAILABLE, "down", null);
+
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfo("abc"))
+                .assertNext(movieInfo -> assertEquals("Batman Begins", movieInfo.getName()))
+                .verifyComplete();
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfo("abc").map(MovieInfo::getName))
+                .expectNext("Batman Begins")
+                .verifyComplete();
+
+        assertEquals(2, support.requests.size());
+    }
+
+    @Test
+    void retried_EveryAttemptTimed() {
+        MoviesInfoRestClient retryingClient = new MoviesInfoRestClient(support.webClient, RestClientTestSupport.instrumentation(meterRegistry),
+                meterRegistry, RestClientTestSupport.retryPolicy(meterRegistry, 1), RestClientTestSupport.resilienceRegistry(meterRegistry), 100);
+        ReflectionTestUtils.setField(retryingClient, "moviesInfoURL", "http://movies/v1/movieInfos");
+        support.respond(HttpStatus.SERVICE_UNAVAILABLE, "down", null);
+        support.respond(HttpStatus.OK, MOVIE_INFO_JSON, null);
+
+        StepVerifier.create(retryingClient.retrieveMovieInfo("abc").map(MovieInfo::getName))
+                .expectNext("Batman Begins")
+                .verifyComplete();
+
+        assertEquals(2, support.requests.size());
+        assertEquals(1, meterRegistry.get("reactive.route").tag("route", "client.movieInfo").tag("outcome", "error").timer().count());
+        assertEquals(1, meterRegistry.get("reactive.route").tag("route", "client.movieInfo").tag("outcome", "complete").timer().count());
+    }
+
+    @Test
+    void notModified_WithoutCachedBody_ReissuedUnconditionally() {
+        support.respond(HttpStatus.NOT_MODIFIED, "", null);
+        support.respond(HttpStatus.OK, MOVIE_INFO_JSON, "\"v1\"");
+
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfo("abc").map(MovieInfo::getName))
+                .expectNext("Batman Begins")
+                .verifyComplete();
+
+        assertEquals(2, support.requests.size());
+        assertTrue(support.requests.get(1).headers().getIfNoneMatch().isEmpty());
+    }
+
+    @Test
+    void unavailable_WithoutLastGood_Fails() {
+        support.respond(HttpStatus.SERVICE_UNAVAILABLE, "down", null);
+
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfo("abc"))
+                .expectError(MovieInfoServerException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.springwebfluxmongodb.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestBudgetTest {
+
+    @Test
+    void startsFull_ThenSpent() {
+        RequestBudget requestBudget = new RequestBudget(0.1, 2);
+
+        assertTrue(requestBudget.tryAcquire());
+        assertTrue(requestBudget.tryAcquire());
+        assertFalse(requestBudget.tryAcquire());
+    }
+
+    @Test
+    void calls_RefillByRatio() {
+        RequestBudget requestBudget = new RequestBudget(0.5, 1);
+        assertTrue(requestBudget.tryAcquire());
+
+        requestBudget.onCall();
+        assertFalse(requestBudget.tryAcquire());
+
+        requestBudget.onCall();
+        assertTrue(requestBudget.tryAcquire());
+        assertFalse(requestBudget.tryAcquire());
+    }
+
+    @Test
+    void calls_NeverRefillAboveMaxTokens() {
+        RequestBudget requestBudget = new RequestBudget(1.0, 1);
+        for (int i = 0; i < 10; i++) {
+            requestBudget.onCall();
+        }
+
+        assertTrue(requestBudget.tryAcquire());
+        assertFalse(requestBudget.tryAcquire());
+    }
+}
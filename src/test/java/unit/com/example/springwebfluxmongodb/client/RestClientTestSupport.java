@@ -0,0 +1,62 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.example.springwebfluxmongodb.instrumentation.ReactiveInstrumentation;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A WebClient answering from a queue of canned responses, and the collaborators of the rest clients built
+ * with the default settings.
+ */
+class RestClientTestSupport {
+
+    final Deque<ClientResponse> responses = new ArrayDeque<>();
+
+    final List<ClientRequest> requests = new ArrayList<>();
+
+    final WebClient webClient = WebClient.builder()
+            .exchangeFunction(request -> Mono.defer(() -> {
+                this.requests.add(request);
+                return Mono.just(this.responses.removeFirst());
+            }))
+            .build();
+
+    void respond(HttpStatus status, String body, String eTag) {
+        ClientResponse.Builder response = ClientResponse.create(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body);
+        if (eTag != null) {
+            response.header(HttpHeaders.ETAG, eTag);
+        }
+        this.responses.add(response.build());
+    }
+
+    static ReactiveInstrumentation instrumentation(MeterRegistry meterRegistry) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        return new ReactiveInstrumentation(beanFactory.getBeanProvider(MeterRegistry.class), 0.0, Set.of());
+    }
+
+    static RetryPolicy retryPolicy(MeterRegistry meterRegistry, int maxRetries) {
+        return new RetryPolicy(meterRegistry, maxRetries, Duration.ofMillis(1), Duration.ofMillis(1), 0.5, 1.0, 20);
+    }
+
+    static ResilienceRegistry resilienceRegistry(MeterRegistry meterRegistry) {
+        return new ResilienceRegistry(meterRegistry, 20, 0.5, Duration.ofSeconds(10), 3, 100,
+                false, Duration.ZERO, 0.95, Duration.ofMillis(10), 0.05, 10, 100, Duration.ofHours(1));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.example.springwebfluxmongodb.exceptions.MovieInfoClientException;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    void notFound_NotRetried() {
+        RetryPolicy retryPolicy = retryPolicy(20);
+
+        StepVerifier.create(retryPolicy.apply(failingCall(new MovieInfoClientException("not found", 404))))
+                .expectError(MovieInfoClientException.class)
+                .verify();
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void serverError_RetriedThenPropagated() {
+        RetryPolicy retryPolicy = retryPolicy(20);
+
+        StepVerifier.create(retryPolicy.apply(failingCall(new MovieInfoServerException("unavailable"))))
+                .expectError(MovieInfoServerException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    void budgetExhausted_StopsRetrying() {
+        RetryPolicy retryPolicy = retryPolicy(1);
+
+        StepVerifier.create(retryPolicy.apply(failingCall(new MovieInfoServerException("unavailable"))))
+                .expectError(MovieInfoServerException.class)
+                .verify(Duration.ofSeconds(5));
+
+        // the bucket held one token, the 0.1 deposit of the call is not enough for a second retry
+        assertEquals(2, attempts.get());
+        assertEquals(1, meterRegistry.get("restClient.retries").tag("outcome", "budgetExhausted").counter().count());
+    }
+
+    @Test
+    void isRetryable() {
+        assertTrue(RetryPolicy.isRetryable(new MovieInfoClientException("too many requests", 429)));
+        assertTrue(RetryPolicy.isRetryable(new MovieInfoServerException("unavailable")));
+        assertFalse(RetryPolicy.isRetryable(new MovieInfoClientException("bad request", 400)));
+        assertFalse(RetryPolicy.isRetryable(new IllegalStateException()));
+    }
+
+    private Mono<String> failingCall(RuntimeException error) {
+        return Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(error);
+        });
+    }
+
+    private RetryPolicy retryPolicy(int budgetMaxTokens) {
+        return new RetryPolicy(meterRegistry, 3, Duration.ofMillis(1), Duration.ofMillis(10), 0.5, 0.1, budgetMaxTokens);
+    }
+}
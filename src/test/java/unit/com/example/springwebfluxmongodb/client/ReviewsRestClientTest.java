@@ -0,0 +1,56 @@
+package com.example.springwebfluxmongodb.client;
+
+import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+class ReviewsRestClientTest {
+
+    static final String REVIEWS_JSON = "[{\"reviewId\":\"r1\",\"movieInfoId\":1,\"comment\":\"Awesome Movie\",\"rating\":9.0}]";
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    RestClientTestSupport support = new RestClientTestSupport();
+
+    ReviewsRestClient reviewsRestClient;
+
+    @BeforeEach
+    void setUp() {
+        reviewsRestClient = new ReviewsRestClient(support.webClient, RestClientTestSupport.instrumentation(meterRegistry), meterRegistry,
+                RestClientTestSupport.retryPolicy(meterRegistry, 0), RestClientTestSupport.resilienceRegistry(meterRegistry), 100);
+        ReflectionTestUtils.setField(reviewsRestClient, "reviewsURL", "http://reviews/v1/reviews");
+    }
+
+    @Test
+    void unavailable_ServesLastGoodReviews() {
+        support.respond(HttpStatus.OK, REVIEWS_JSON, null);
+        support.respond(HttpStatus.SERVICE_UNAVAILABLE, "down", null);
+
+        StepVerifier.create(reviewsRestClient.retrieveReviews(List.of("1")).map(Review::getReviewId))
+                .expectNext("r1")
+                .verifyComplete();
+        StepVerifier.create(reviewsRestClient.retrieveReviews(List.of("1")).map(Review::getReviewId))
+                .expectNext("r1")
+                .verifyComplete();
+    }
+
+    @Test
+    void unavailable_LastGoodIsPerIds() {
+        support.respond(HttpStatus.OK, REVIEWS_JSON, null);
+        support.respond(HttpStatus.SERVICE_UNAVAILABLE, "down", null);
+
+        StepVerifier.create(reviewsRestClient.retrieveReviews(List.of("1")))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(reviewsRestClient.retrieveReviews(List.of("1", "2")))
+                .expectError(MovieInfoServerException.class)
+                .verify();
+    }
+}
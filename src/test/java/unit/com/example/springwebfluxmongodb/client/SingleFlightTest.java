@@ -0,0 +1,86 @@
+package com.example.springwebfluxmongodb.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightTest {
+
+    SimpleMeterRegistry meterRegistry;
+
+    SingleFlight<String, String> singleFlight;
+
+    AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("test", meterRegistry);
+        upstreamCalls = new AtomicInteger();
+    }
+
+    @Test
+    void concurrentCalls_ShareOneUpstreamCall() {
+        Sinks.One<String> upstream = Sinks.one();
+
+        Mono<String> first = singleFlight.execute("abc", () -> call(upstream.asMono()));
+        Mono<String> second = singleFlight.execute("abc", () -> call(upstream.asMono()));
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> upstream.tryEmitValue("value"))
+                .assertNext(values -> {
+                    assertEquals("value", values.getT1());
+                    assertEquals("value", values.getT2());
+                })
+                .verifyComplete();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, meterRegistry.get("singleFlight.coalesced").counter().count());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void cancellingOneCaller_DoesNotCancelTheOthers() {
+        Sinks.One<String> upstream = Sinks.one();
+
+        StepVerifier.create(singleFlight.execute("abc", () -> call(upstream.asMono())))
+                .thenCancel()
+                .verify();
+
+        StepVerifier.create(singleFlight.execute("abc", () -> call(upstream.asMono())))
+                .then(() -> upstream.tryEmitValue("value"))
+                .expectNext("value")
+                .verifyComplete();
+
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void error_DeliveredToAllCallersAndReleasesKey() {
+        Mono<String> failing = singleFlight.execute("abc",
+                () -> call(Mono.delay(Duration.ofMillis(50)).then(Mono.error(new IllegalStateException()))));
+
+        StepVerifier.create(Mono.zip(failing, singleFlight.execute("abc", () -> call(Mono.just("unused")))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        StepVerifier.create(singleFlight.execute("abc", () -> call(Mono.just("value"))))
+                .expectNext("value")
+                .verifyComplete();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    private Mono<String> call(Mono<String> result) {
+        upstreamCalls.incrementAndGet();
+        return result;
+    }
+}
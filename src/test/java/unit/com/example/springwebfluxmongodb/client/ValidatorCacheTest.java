@@ -0,0 +1,68 @@
+package com.example.springwebfluxmongodb.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidatorCacheTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    ValidatorCache<String, String> validatorCache = new ValidatorCache<>("test", 100, meterRegistry);
+
+    AtomicInteger reissued = new AtomicInteger();
+
+    @Test
+    void notModified_ServesCachedBody() {
+        StepVerifier.create(validatorCache.resolve("a", ResponseEntity.ok().eTag("\"v1\"").body("body"), this::unconditional))
+                .expectNext("body")
+                .verifyComplete();
+
+        HttpHeaders headers = new HttpHeaders();
+        validatorCache.addConditions("a", headers);
+        assertEquals(List.of("\"v1\""), headers.getIfNoneMatch());
+
+        StepVerifier.create(validatorCache.resolve("a", ResponseEntity.status(HttpStatus.NOT_MODIFIED).build(), this::unconditional))
+                .expectNext("body")
+                .verifyComplete();
+
+        assertEquals(0, reissued.get());
+        assertEquals(1, meterRegistry.get("restClient.notModified").counter().count());
+    }
+
+    @Test
+    void notModified_AfterEviction_ReissuesUnconditionally() {
+        StepVerifier.create(validatorCache.resolve("b", ResponseEntity.status(HttpStatus.NOT_MODIFIED).build(), this::unconditional))
+                .expectNext("fresh")
+                .verifyComplete();
+
+        assertEquals(1, reissued.get());
+        HttpHeaders headers = new HttpHeaders();
+        validatorCache.addConditions("b", headers);
+        assertEquals(List.of("\"v2\""), headers.getIfNoneMatch());
+    }
+
+    @Test
+    void untagged_NotCached() {
+        validatorCache.resolve("c", ResponseEntity.ok("body"), this::unconditional).block();
+
+        HttpHeaders headers = new HttpHeaders();
+        validatorCache.addConditions("c", headers);
+        assertTrue(headers.getIfNoneMatch().isEmpty());
+    }
+
+    private Mono<ResponseEntity<String>> unconditional() {
+        reissued.incrementAndGet();
+        return Mono.just(ResponseEntity.ok().eTag("\"v2\"").body("fresh"));
+    }
+}
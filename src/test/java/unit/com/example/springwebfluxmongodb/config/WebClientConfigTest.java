@@ -0,0 +1,52 @@
+package com.example.springwebfluxmongodb.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.http.codec.CodecsAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebClientConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class, CodecsAutoConfiguration.class,
+                    WebClientAutoConfiguration.class))
+            .withUserConfiguration(WebClientConfig.class);
+
+    @Test
+    void bindsHttpPropertiesAndBuildsH2cClientOnDedicatedLoop() {
+        this.contextRunner
+                .withPropertyValues(
+                        "restClient.http.maxConnections=10",
+                        "restClient.http.maxIdleTime=45s",
+                        "restClient.http.readTimeout=2s",
+                        "restClient.http.writeTimeout=3s",
+                        "restClient.http.responseTimeout=4s",
+                        "restClient.http.h2c=true",
+                        "restClient.http.eventLoopThreads=2")
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context).hasSingleBean(WebClient.class);
+
+                    WebClientProperties properties = context.getBean(WebClientProperties.class);
+                    assertEquals(10, properties.getMaxConnections());
+                    assertEquals(Duration.ofSeconds(45), properties.getMaxIdleTime());
+                    assertEquals(Duration.ofSeconds(2), properties.getReadTimeout());
+                    assertEquals(Duration.ofSeconds(3), properties.getWriteTimeout());
+                    assertEquals(Duration.ofSeconds(4), properties.getResponseTimeout());
+                    assertTrue(properties.isH2c());
+                    assertEquals(2, properties.getEventLoopThreads());
+
+                    assertEquals(10, context.getBean(ConnectionProvider.class).maxConnections());
+                });
+    }
+}
@@ -1,12 +1,19 @@
 package com.example.springwebfluxmongodb.controller;
 
+import com.example.springwebfluxmongodb.config.StreamConfig;
+import com.example.springwebfluxmongodb.domain.CursorPage;
 import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.MovieInfoSuggestion;
+import com.example.springwebfluxmongodb.instrumentation.ReactiveInstrumentation;
+import com.example.springwebfluxmongodb.search.MovieInfoSearch;
+import com.example.springwebfluxmongodb.search.MovieNameSuggester;
 import com.example.springwebfluxmongodb.service.MovieInfoService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -15,12 +22,18 @@ import java.time.LocalDate;
 import java.util.List;
 
 import static com.example.springwebfluxmongodb.controller.MovieInfoControllerTest.MOVIE_INFO_URL;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @WebFluxTest(controllers = MovieInfoController.class)
+@Import({StreamConfig.class, ReactiveInstrumentation.class})
 @AutoConfigureWebTestClient
 class MovieInfoControllerUnitTest {
 
@@ -30,6 +43,12 @@ class MovieInfoControllerUnitTest {
     @MockBean
     MovieInfoService movieInfoServiceMock;
 
+    @MockBean
+    MovieInfoSearch movieInfoSearchMock;
+
+    @MockBean
+    MovieNameSuggester movieNameSuggesterMock;
+
     static String MOVIE_INFO_URI = "/v1/movieInfos";
 
     @Test
@@ -42,7 +61,7 @@ class MovieInfoControllerUnitTest {
                 new MovieInfo("abc", "Dark Knight Rises", 2012,
                         List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
 
-        when(movieInfoServiceMock.findAll()).thenReturn(Flux.fromIterable(moviesInfoList));
+        when(movieInfoServiceMock.findPage(isNull(), anyInt(), any())).thenReturn(Mono.just(new CursorPage<>(moviesInfoList, null)));
 
         webTestClient
                 .get()
@@ -59,7 +78,7 @@ class MovieInfoControllerUnitTest {
         MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
                 List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
 
-        when(movieInfoServiceMock.findById("abc")).thenReturn(Mono.just(movieInfo));
+        when(movieInfoServiceMock.findById(eq("abc"), any())).thenReturn(Mono.just(movieInfo));
 
         webTestClient
                 .get()
@@ -71,6 +90,173 @@ class MovieInfoControllerUnitTest {
                 .jsonPath("$.name" ).isEqualTo("Dark Knight Rises");
     }
 
+    @Test
+    void getMovieInfoById_NotModified() {
+        MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 3L);
+
+        when(movieInfoServiceMock.findById(eq("abc"), any())).thenReturn(Mono.just(movieInfo));
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URL + "/{id}", "abc")
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals("ETag", "\"3\"")
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    void getMovieInfosBeforeYear_PageIsTagged() {
+        List<MovieInfo> moviesInfoList = List.of(new MovieInfo("abc", "The Dark Knight", 2008,
+                List.of("Christian Bale", "Heath Ledger"), LocalDate.parse("2008-07-18")));
+
+        when(movieInfoServiceMock.findPageBeforeYear(eq(2010), isNull(), eq(1), any())).thenReturn(Mono.just(new CursorPage<>(moviesInfoList, "next")));
+
+        String eTag = webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI + "?year=2010&limit=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(CursorPage.NEXT_CURSOR_HEADER, "next")
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(eTag);
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI + "?year=2010&limit=1")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+    }
+
+    @Test
+    void getAllMovieInfos_NotModified() {
+        List<MovieInfo> moviesInfoList = List.of(new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        when(movieInfoServiceMock.findPage(isNull(), anyInt(), any())).thenReturn(Mono.just(new CursorPage<>(moviesInfoList, null)));
+
+        String eTag = webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(eTag);
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+    }
+
+    @Test
+    void getMovieInfosByCastMember() {
+        List<MovieInfo> moviesInfoList = List.of(
+                new MovieInfo("abc", "Dark Knight Rises", 2012,
+                        List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        when(movieInfoServiceMock.findPageByCastMember(eq("Tom Hardy"), isNull(), eq(1), any()))
+                .thenReturn(Mono.just(new CursorPage<>(moviesInfoList, CursorPage.encodeCursor("abc"))));
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI + "?castMember={castMember}&limit=1", "Tom Hardy")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(CursorPage.NEXT_CURSOR_HEADER, CursorPage.encodeCursor("abc"))
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void searchMovieInfos() {
+        List<MovieInfo> moviesInfoList = List.of(
+                new MovieInfo("abc", "Dark Knight Rises", 2012,
+                        List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")),
+                new MovieInfo("def", "The Dark Knight", 2008,
+                        List.of("Christian Bale", "Heath Ledger"), LocalDate.parse("2008-07-18")));
+
+        when(movieInfoSearchMock.search("dark knight", 0, 2)).thenReturn(Flux.fromIterable(moviesInfoList));
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI + "/search?q={q}&limit=1", "dark knight")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(CursorPage.NEXT_CURSOR_HEADER, CursorPage.encodeCursor("1"))
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void searchMovieInfos_BlankQuery() {
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI + "/search?q= ")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void suggestMovieInfos() {
+        when(movieNameSuggesterMock.suggest("dark", 10)).thenReturn(List.of(
+                new MovieInfoSuggestion("abc", "Dark Knight Rises")));
+
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI + "/suggest?prefix=dark")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfoSuggestion.class)
+                .contains(new MovieInfoSuggestion("abc", "Dark Knight Rises"));
+    }
+
+    @Test
+    void getAllMovieInfoSseStream_NonNumericLastEventId() {
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI + "/stream/sse")
+                .header("Last-Event-ID", "abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void suggestMovieInfos_DiacriticsOnlyPrefix() {
+        webTestClient
+                .get()
+                .uri(MOVIE_INFO_URI + "/suggest?prefix={prefix}", "\u0301")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+
+        verifyNoInteractions(movieNameSuggesterMock);
+    }
+
     @Test
     void addMovieInfo() {
         MovieInfo movieInfo = new MovieInfo(null, "Dark Knight Rises", 2012,
@@ -100,7 +286,7 @@ class MovieInfoControllerUnitTest {
         MovieInfo movieInfo = new MovieInfo(null, "Dark Knight Rises", 2012,
                 List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
 
-        when(movieInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class)))
+        when(movieInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class), isNull()))
                 .thenReturn(Mono.just(
                         new MovieInfo(mockId, "Dark Knight Rises", 2012,
                         List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")))
@@ -126,7 +312,7 @@ class MovieInfoControllerUnitTest {
     void deleteMovieById() {
         String mockId = "mockId";
 
-        when(movieInfoServiceMock.deleteById(mockId)).thenReturn(Mono.empty());
+        when(movieInfoServiceMock.deleteById(mockId)).thenReturn(Mono.just(1L));
 
         webTestClient
                 .delete()
@@ -136,6 +322,20 @@ class MovieInfoControllerUnitTest {
                 .isNoContent();
     }
 
+    @Test
+    void deleteMovieByIdNotFound() {
+        String mockId = "mockId";
+
+        when(movieInfoServiceMock.deleteById(mockId)).thenReturn(Mono.just(0L));
+
+        webTestClient
+                .delete()
+                .uri(MOVIE_INFO_URL + "/{id}", mockId)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
     @Test
     void addMovieInfoValidation() {
         MovieInfo movieInfo = new MovieInfo(null, "", -2005,
@@ -166,6 +366,8 @@ class MovieInfoControllerUnitTest {
         MovieInfo movieInfo = new MovieInfo(movieInfoId, "Dark Knight Rises", 2005,
                 List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
 
+        when(movieInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), eq(movieInfoId), isNull())).thenReturn(Mono.empty());
+
         webTestClient
                 .put()
                 .uri(MOVIE_INFO_URI + "/{id}", movieInfoId)
@@ -0,0 +1,58 @@
+package com.example.springwebfluxmongodb.instrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReactiveInstrumentationTest {
+
+    private MeterRegistry meterRegistry;
+    private ReactiveInstrumentation instrumentation;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", this.meterRegistry);
+        this.instrumentation = new ReactiveInstrumentation(beanFactory.getBeanProvider(MeterRegistry.class), 1.0, Set.of("test.flux"));
+    }
+
+    @Test
+    void flux_TimedPerOutcome() {
+        StepVerifier.create(this.instrumentation.flux("test.flux", Flux.just(1, 2, 3)))
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+
+        StepVerifier.create(this.instrumentation.flux("test.flux", Flux.never()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(1, timerCount("test.flux", "complete"));
+        assertEquals(1, timerCount("test.flux", "cancel"));
+    }
+
+    @Test
+    void mono_TimedOnError() {
+        StepVerifier.create(this.instrumentation.mono("test.mono", Mono.error(new IllegalStateException())))
+                .verifyError(IllegalStateException.class);
+
+        assertEquals(1, timerCount("test.mono", "error"));
+    }
+
+    private long timerCount(String route, String outcome) {
+        return this.meterRegistry.get("reactive.route")
+                .tag("route", route)
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.springwebfluxmongodb.router;
 
+import com.example.springwebfluxmongodb.config.StreamConfig;
+import com.example.springwebfluxmongodb.domain.MovieRatingStats;
 import com.example.springwebfluxmongodb.domain.Review;
 import com.example.springwebfluxmongodb.exceptionHandler.GlobalErrorHandler;
-import com.example.springwebfluxmongodb.exceptions.ReviewNotFoundException;
 import com.example.springwebfluxmongodb.handler.ReviewHandler;
+import com.example.springwebfluxmongodb.instrumentation.ReactiveInstrumentation;
+import com.example.springwebfluxmongodb.repository.MovieRatingStatsRepository;
 import com.example.springwebfluxmongodb.repository.ReviewReactiveRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,19 +21,30 @@ import reactor.core.publisher.Mono;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class, StreamConfig.class,
+        ReactiveInstrumentation.class})
 @AutoConfigureWebTestClient
 class ReviewsUnitTest {
 
     @MockBean
     ReviewReactiveRepository reviewReactiveRepository;
 
+    @MockBean
+    MovieRatingStatsRepository movieRatingStatsRepository;
+
     @Autowired
     WebTestClient webTestClient;
 
@@ -42,6 +56,7 @@ class ReviewsUnitTest {
 
         when(reviewReactiveRepository.save(isA(Review.class)))
                 .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        when(movieRatingStatsRepository.addRating(eq(1L), anyDouble())).thenReturn(Mono.empty());
 
         webTestClient
                 .post()
@@ -90,7 +105,7 @@ class ReviewsUnitTest {
                 new Review(null, 2L, "Nice Movie 2", 8.0),
                 new Review(null, 1L, "Cool Movie 3", 7.0));
 
-        when(this.reviewReactiveRepository.findAll()).thenReturn(Flux.fromIterable(reviews));
+        when(this.reviewReactiveRepository.findPageAfter(isNull(), anyInt(), anyCollection())).thenReturn(Flux.fromIterable(reviews));
 
         webTestClient
                 .get()
@@ -109,7 +124,7 @@ class ReviewsUnitTest {
                 new Review(null, 1L, "Awesome Movie", 9.0),
                 new Review(null, 1L, "Cool Movie 3", 7.0));
 
-        when(this.reviewReactiveRepository.findByMovieInfoId(isA(Long.class))).thenReturn(Flux.fromIterable(reviews));
+        when(this.reviewReactiveRepository.findProjectedByMovieInfoId(isA(Long.class), anyCollection())).thenReturn(Flux.fromIterable(reviews));
 
         URI uriWithQueryParam = UriComponentsBuilder.fromUriString(REVIEW_URI).queryParam("movieInfoId", 1).buildAndExpand().toUri();
 
@@ -123,13 +138,67 @@ class ReviewsUnitTest {
                 .hasSize(2);
     }
 
+    @Test
+    void getReviewById_NotModified() {
+        when(reviewReactiveRepository.findById("abc"))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0, 2L)));
+
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/{id}", "abc")
+                .ifNoneMatch("\"2\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/{id}", "abc")
+                .ifNoneMatch("\"1\"")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals("ETag", "\"2\"");
+    }
+
+    @Test
+    void getRatingStats() {
+        when(movieRatingStatsRepository.findById(1L))
+                .thenReturn(Mono.just(new MovieRatingStats(1L, 2, 17.0, 8.0, 9.0, Map.of("8", 1L, "9", 1L))));
+
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/stats?movieInfoId={id}", 1)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.average").isEqualTo(8.5)
+                .jsonPath("$.histogram.9").isEqualTo(1);
+    }
+
+    @Test
+    void getRatingStats_MissingMovieInfoId() {
+
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/stats")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void updateReviewByIdNotFoundException() {
 
         Review existingReview = new Review("correctId", 1L, "Awesome Movie", 9.0);
 
-        when(this.reviewReactiveRepository.save(isA(Review.class)))
-                .thenReturn(Mono.error(new ReviewNotFoundException("Review not found for the given Review id")));
+        when(this.reviewReactiveRepository.updateFieldsReturningPrevious(eq("falseId"), anyMap(), isNull()))
+                .thenReturn(Mono.empty());
 
         webTestClient
                 .put()
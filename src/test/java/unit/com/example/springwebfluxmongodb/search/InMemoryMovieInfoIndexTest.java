@@ -0,0 +1,67 @@
+package com.example.springwebfluxmongodb.search;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InMemoryMovieInfoIndexTest {
+
+    MovieInfo batmanBegins = new MovieInfo("a", "Batman Begins", 2005,
+            List.of("Christian Bale", "Michael Caine"), LocalDate.parse("2005-06-15"));
+    MovieInfo darkKnight = new MovieInfo("b", "The Dark Knight", 2008,
+            List.of("Christian Bale", "Heath Ledger"), LocalDate.parse("2008-07-18"));
+    MovieInfo amelie = new MovieInfo("c", "Amélie", 2001,
+            List.of("Audrey Tautou"), LocalDate.parse("2001-04-25"));
+
+    InMemoryMovieInfoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MovieInfoRepository movieInfoRepositoryMock = mock(MovieInfoRepository.class);
+        when(movieInfoRepositoryMock.findAll()).thenReturn(Flux.just(batmanBegins, darkKnight, amelie));
+
+        index = new InMemoryMovieInfoIndex(movieInfoRepositoryMock);
+        index.afterPropertiesSet();
+    }
+
+    @Test
+    void search_NameMatchRanksAboveCastMatch() {
+        index.onSaved(new MovieInfo("d", "Caine", 2020, List.of("Someone Else"), null));
+
+        StepVerifier.create(index.search("caine", 0, 10).map(MovieInfo::getMovieInfoId))
+                .expectNext("d", "a")
+                .verifyComplete();
+    }
+
+    @Test
+    void search_IgnoresCaseAndDiacritics() {
+        StepVerifier.create(index.search("AMELIE", 0, 10))
+                .expectNext(amelie)
+                .verifyComplete();
+    }
+
+    @Test
+    void search_Paginated() {
+        StepVerifier.create(index.search("bale", 1, 10).map(MovieInfo::getMovieInfoId))
+                .expectNext("b")
+                .verifyComplete();
+    }
+
+    @Test
+    void search_FollowsUpdatesAndDeletes() {
+        index.onSaved(new MovieInfo("b", "The Dark Knight", 2008, List.of("Heath Ledger"), null));
+        index.onDeleted("a");
+
+        StepVerifier.create(index.search("bale", 0, 10))
+                .verifyComplete();
+    }
+}
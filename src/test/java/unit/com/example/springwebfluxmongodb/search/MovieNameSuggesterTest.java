@@ -0,0 +1,56 @@
+package com.example.springwebfluxmongodb.search;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.MovieInfoSuggestion;
+import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MovieNameSuggesterTest {
+
+    MovieNameSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        MovieInfoRepository movieInfoRepositoryMock = mock(MovieInfoRepository.class);
+        when(movieInfoRepositoryMock.findAll()).thenReturn(Flux.just(
+                new MovieInfo("a", "The Dark Knight", 2008, List.of(), null),
+                new MovieInfo("b", "Dark Knight Rises", 2012, List.of(), null),
+                new MovieInfo("c", "Dark", 2017, List.of(), null),
+                new MovieInfo("d", "Amélie", 2001, List.of(), null)));
+
+        suggester = new MovieNameSuggester(movieInfoRepositoryMock);
+        suggester.afterPropertiesSet();
+    }
+
+    @Test
+    void suggest_PrefixRangeInNameOrder() {
+        assertEquals(List.of(new MovieInfoSuggestion("c", "Dark"), new MovieInfoSuggestion("b", "Dark Knight Rises")),
+                suggester.suggest("DARK", 10));
+        assertEquals(List.of(new MovieInfoSuggestion("c", "Dark")), suggester.suggest("dark", 1));
+        assertEquals(List.of(new MovieInfoSuggestion("d", "Amélie")), suggester.suggest("ame", 10));
+        assertEquals(List.of(), suggester.suggest("x", 10));
+    }
+
+    @Test
+    void suggest_PrefixWithoutLetters_NoSuggestions() {
+        assertEquals(List.of(), suggester.suggest("\u0301", 10));
+    }
+
+    @Test
+    void suggest_FollowsRenamesAndDeletes() {
+        suggester.onSaved(new MovieInfo("a", "Dark City", 1998, List.of(), null));
+        suggester.onDeleted("b");
+
+        assertEquals(List.of(new MovieInfoSuggestion("c", "Dark"), new MovieInfoSuggestion("a", "Dark City")),
+                suggester.suggest("dark", 10));
+        assertEquals(List.of(), suggester.suggest("the", 10));
+    }
+}
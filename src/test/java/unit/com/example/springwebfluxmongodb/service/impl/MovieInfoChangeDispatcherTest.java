@@ -0,0 +1,51 @@
+package com.example.springwebfluxmongodb.service.impl;
+
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.MovieInfoChange;
+import com.example.springwebfluxmongodb.service.MovieInfoChangeListener;
+import com.example.springwebfluxmongodb.stream.Broadcaster;
+import com.example.springwebfluxmongodb.stream.LocalEventStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class MovieInfoChangeDispatcherTest {
+
+    private final Broadcaster<MovieInfoChange> broadcaster = new Broadcaster<>("movieInfoChanges", 16,
+            Broadcaster.OverflowPolicy.DROP_OLDEST, Duration.ofSeconds(15), Duration.ofSeconds(60), 16, new SimpleMeterRegistry());
+
+    private MovieInfoChangeDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        this.dispatcher.destroy();
+        this.broadcaster.destroy();
+    }
+
+    @Test
+    void changes_DispatchedToEveryListener() {
+        MovieInfoChangeListener failingListener = mock(MovieInfoChangeListener.class);
+        MovieInfoChangeListener listener = mock(MovieInfoChangeListener.class);
+        MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        doThrow(new IllegalStateException("boom")).when(failingListener).onSaved(movieInfo);
+
+        this.dispatcher = new MovieInfoChangeDispatcher(new LocalEventStream<>(this.broadcaster), List.of(failingListener, listener));
+        this.dispatcher.afterPropertiesSet();
+
+        this.broadcaster.publish(MovieInfoChange.saved(movieInfo));
+        this.broadcaster.publish(MovieInfoChange.deleted("abc"));
+
+        verify(listener).onSaved(movieInfo);
+        verify(listener).onDeleted("abc");
+        verify(failingListener).onDeleted("abc");
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.springwebfluxmongodb.service.impl;
+
+import com.example.springwebfluxmongodb.domain.BulkInsertResult;
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.MovieInfoChange;
+import com.example.springwebfluxmongodb.repository.MovieInfoRepository;
+import com.example.springwebfluxmongodb.stream.EventStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import javax.validation.Validation;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoServiceImplTest {
+
+    MovieInfoRepository movieInfoRepositoryMock;
+
+    SimpleMeterRegistry meterRegistry;
+
+    EventStream<MovieInfoChange> movieInfoChangeStreamMock;
+
+    MovieInfoServiceImpl movieInfoService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        movieInfoRepositoryMock = mock(MovieInfoRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        movieInfoChangeStreamMock = mock(EventStream.class);
+        when(movieInfoChangeStreamMock.publish(any())).thenReturn(Mono.empty());
+        movieInfoService = new MovieInfoServiceImpl(movieInfoRepositoryMock,
+                Validation.buildDefaultValidatorFactory().getValidator(), meterRegistry,
+                movieInfoChangeStreamMock, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void findByIdIsServedFromCache() {
+        MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+
+        when(movieInfoRepositoryMock.findById("abc")).thenReturn(Mono.just(movieInfo));
+
+        StepVerifier.create(movieInfoService.findById("abc"))
+                .expectNext(movieInfo)
+                .verifyComplete();
+        StepVerifier.create(movieInfoService.findById("abc"))
+                .expectNext(movieInfo)
+                .verifyComplete();
+
+        verify(movieInfoRepositoryMock, times(1)).findById("abc");
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "movieInfo.byId").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void getMovieByNameUsesCachedMovieInfo() {
+        MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+
+        when(movieInfoRepositoryMock.findById("abc")).thenReturn(Mono.just(movieInfo));
+
+        movieInfoService.findById("abc").block();
+
+        StepVerifier.create(movieInfoService.getMovieByName("Dark Knight Rises"))
+                .expectNext(movieInfo)
+                .verifyComplete();
+    }
+
+    @Test
+    void updateRefreshesCachedMovieInfo() {
+        MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        MovieInfo updatedMovieInfo = new MovieInfo("abc", "Dark Knight Rises", 2014,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2014-07-20"));
+
+        when(movieInfoRepositoryMock.findById("abc")).thenReturn(Mono.just(movieInfo));
+        when(movieInfoRepositoryMock.updateFields(eq("abc"), anyMap(), isNull())).thenReturn(Mono.just(updatedMovieInfo));
+
+        movieInfoService.findById("abc").block();
+        movieInfoService.updateMovieInfo(updatedMovieInfo, "abc", null).block();
+
+        StepVerifier.create(movieInfoService.findById("abc"))
+                .assertNext(cachedMovieInfo -> assertEquals(2014, cachedMovieInfo.getYear()))
+                .verifyComplete();
+        verify(movieInfoChangeStreamMock).publish(MovieInfoChange.saved(updatedMovieInfo));
+    }
+
+    @Test
+    void staleReadDoesNotReplaceNewerCachedMovieInfo() {
+        MovieInfo staleMovieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 1L);
+        MovieInfo updatedMovieInfo = new MovieInfo("abc", "Dark Knight Rises", 2014,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2014-07-20"), 2L);
+        Sinks.One<MovieInfo> pendingRead = Sinks.one();
+
+        when(movieInfoRepositoryMock.findById("abc")).thenReturn(pendingRead.asMono());
+        when(movieInfoRepositoryMock.updateFields(eq("abc"), anyMap(), isNull())).thenReturn(Mono.just(updatedMovieInfo));
+
+        CompletableFuture<MovieInfo> staleRead = movieInfoService.findById("abc").toFuture();
+        movieInfoService.updateMovieInfo(updatedMovieInfo, "abc", null).block();
+        pendingRead.tryEmitValue(staleMovieInfo);
+
+        assertEquals(staleMovieInfo, staleRead.join());
+        StepVerifier.create(movieInfoService.findById("abc"))
+                .assertNext(cachedMovieInfo -> assertEquals(2L, cachedMovieInfo.getVersion()))
+                .verifyComplete();
+        verify(movieInfoRepositoryMock, times(1)).findById("abc");
+    }
+
+    @Test
+    void addMovieInfos_SlowProducerAndSlowInserts_PartialBatchesWaitForDemand() {
+        ReflectionTestUtils.setField(movieInfoService, "bulkBatchSize", 100);
+        ReflectionTestUtils.setField(movieInfoService, "bulkMaxInFlightBatches", 1);
+        ReflectionTestUtils.setField(movieInfoService, "bulkMaxBatchWait", Duration.ofMillis(20));
+        AtomicInteger ids = new AtomicInteger();
+        when(movieInfoRepositoryMock.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<MovieInfo> batch = invocation.getArgument(0);
+            batch.forEach(movieInfo -> movieInfo.setMovieInfoId("id" + ids.incrementAndGet()));
+            return Mono.just(Map.<Integer, String>of()).delayElement(Duration.ofMillis(100));
+        });
+
+        // one movie info every 30ms, each partial batch is cut while the insert before it still runs
+        Flux<MovieInfo> slowProducer = Flux.range(1, 6)
+                .delayElements(Duration.ofMillis(30))
+                .map(i -> new MovieInfo(null, "Movie " + i, 2000 + i, List.of("Christian Bale"), null));
+
+        StepVerifier.create(movieInfoService.addMovieInfos(slowProducer))
+                .thenConsumeWhile(result -> result.getStatus() == BulkInsertResult.Status.CREATED)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(6, ids.get());
+        verify(movieInfoRepositoryMock, atLeast(2)).insertUnordered(anyList());
+    }
+
+    @Test
+    void deleteInvalidatesCachedMovieInfo() {
+        MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+
+        when(movieInfoRepositoryMock.findById("abc")).thenReturn(Mono.just(movieInfo));
+        when(movieInfoRepositoryMock.deleteByMovieInfoId("abc")).thenReturn(Mono.just(1L));
+
+        movieInfoService.findById("abc").block();
+        movieInfoService.deleteById("abc").block();
+        movieInfoService.findById("abc").block();
+
+        verify(movieInfoRepositoryMock, times(2)).findById("abc");
+        verify(movieInfoChangeStreamMock).publish(MovieInfoChange.deleted("abc"));
+    }
+
+    @Test
+    void readStartedBeforeDeleteDoesNotRecacheDeletedMovieInfo() {
+        MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 1L);
+        Sinks.One<MovieInfo> pendingRead = Sinks.one();
+
+        when(movieInfoRepositoryMock.findById("abc")).thenReturn(pendingRead.asMono(), Mono.empty());
+        when(movieInfoRepositoryMock.deleteByMovieInfoId("abc")).thenReturn(Mono.just(1L));
+
+        CompletableFuture<MovieInfo> readBeforeDelete = movieInfoService.findById("abc").toFuture();
+        movieInfoService.deleteById("abc").block();
+        pendingRead.tryEmitValue(movieInfo);
+
+        assertEquals(movieInfo, readBeforeDelete.join());
+        StepVerifier.create(movieInfoService.findById("abc"))
+                .verifyComplete();
+        verify(movieInfoRepositoryMock, times(2)).findById("abc");
+    }
+}
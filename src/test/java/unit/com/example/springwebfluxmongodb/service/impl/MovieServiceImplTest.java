@@ -0,0 +1,191 @@
+package com.example.springwebfluxmongodb.service.impl;
+
+import com.example.springwebfluxmongodb.client.MoviesInfoRestClient;
+import com.example.springwebfluxmongodb.client.ReviewsRestClient;
+import com.example.springwebfluxmongodb.domain.MovieInfo;
+import com.example.springwebfluxmongodb.domain.Review;
+import com.example.springwebfluxmongodb.domain.TopRatedMovie;
+import com.example.springwebfluxmongodb.exceptions.MovieInfoClientException;
+import com.example.springwebfluxmongodb.repository.ReviewReactiveRepository;
+import com.example.springwebfluxmongodb.service.MovieInfoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieServiceImplTest {
+
+    static final String MOVIES_INFO_URL = "http://localhost:8080/v1/movieInfos";
+    static final String REVIEWS_URL = "http://localhost:8080/v1/reviews";
+
+    MoviesInfoRestClient moviesInfoRestClientMock;
+
+    ReviewsRestClient reviewsRestClientMock;
+
+    MovieInfoService movieInfoServiceMock;
+
+    ReviewReactiveRepository reviewReactiveRepositoryMock;
+
+    MovieInfo movieInfo = new MovieInfo("1", "Batman Begins", 2005,
+            List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+    Review review = new Review("r1", 1L, "Awesome Movie", 9.0);
+
+    @BeforeEach
+    void setUp() {
+        moviesInfoRestClientMock = mock(MoviesInfoRestClient.class);
+        reviewsRestClientMock = mock(ReviewsRestClient.class);
+        movieInfoServiceMock = mock(MovieInfoService.class);
+        reviewReactiveRepositoryMock = mock(ReviewReactiveRepository.class);
+    }
+
+    @Test
+    void getTopRatedMovies_Cached() {
+        MovieServiceImpl movieService = movieService(MovieServiceImpl.InProcessMode.NEVER);
+        when(reviewReactiveRepositoryMock.findTopRated(10, 20L, null))
+                .thenReturn(Flux.just(new TopRatedMovie(movieInfo, 9.0, 25L)));
+
+        StepVerifier.create(movieService.getTopRatedMovies(10, 20, null))
+                .expectNextMatches(topRatedMovie -> topRatedMovie.getMovieInfo().equals(movieInfo))
+                .verifyComplete();
+        StepVerifier.create(movieService.getTopRatedMovies(10, 20, null))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(reviewReactiveRepositoryMock, times(1)).findTopRated(10, 20L, null);
+    }
+
+    @Test
+    void getMovieById_InProcess() {
+        MovieServiceImpl movieService = movieService(MovieServiceImpl.InProcessMode.ALWAYS);
+        when(movieInfoServiceMock.findById("1")).thenReturn(Mono.just(movieInfo));
+        when(reviewReactiveRepositoryMock.findByMovieInfoId(1L)).thenReturn(Flux.just(review));
+
+        StepVerifier.create(movieService.getMovieById("1"))
+                .assertNext(movie -> {
+                    assertEquals(movieInfo, movie.getMovieInfo());
+                    assertEquals(List.of(review), movie.getReviewList());
+                })
+                .verifyComplete();
+
+        verify(moviesInfoRestClientMock, never()).retrieveMovieInfo(anyString());
+        verify(reviewsRestClientMock, never()).retrieveReviews(anyString());
+    }
+
+    @Test
+    void getMovieById_InProcess_NotFound() {
+        MovieServiceImpl movieService = movieService(MovieServiceImpl.InProcessMode.ALWAYS);
+        when(movieInfoServiceMock.findById("2")).thenReturn(Mono.empty());
+        when(reviewReactiveRepositoryMock.findByMovieInfoId(2L)).thenReturn(Flux.empty());
+
+        StepVerifier.create(movieService.getMovieById("2"))
+                .expectError(MovieInfoClientException.class)
+                .verify();
+    }
+
+    @Test
+    void getMovieById_OverHttp() {
+        MovieServiceImpl movieService = movieService(MovieServiceImpl.InProcessMode.NEVER);
+        when(moviesInfoRestClientMock.retrieveMovieInfo("1")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClientMock.retrieveReviews("1")).thenReturn(Flux.just(review));
+
+        StepVerifier.create(movieService.getMovieById("1"))
+                .assertNext(movie -> assertEquals(1, movie.getReviewList().size()))
+                .verifyComplete();
+    }
+
+    @Test
+    void getMoviesByIds_InProcess_OrderedWithOneReviewQuery() {
+        MovieServiceImpl movieService = movieService(MovieServiceImpl.InProcessMode.ALWAYS);
+        MovieInfo otherMovieInfo = new MovieInfo("2", "The Dark Knight", 2008,
+                List.of("Christian Bale", "Heath Ledger"), LocalDate.parse("2008-07-18"));
+
+        when(movieInfoServiceMock.findById("2")).thenReturn(Mono.just(otherMovieInfo).delayElement(Duration.ofMillis(50)));
+        when(movieInfoServiceMock.findById("3")).thenReturn(Mono.empty());
+        when(movieInfoServiceMock.findById("1")).thenReturn(Mono.just(movieInfo));
+        when(reviewReactiveRepositoryMock.findByMovieInfoIdIn(anyCollection())).thenReturn(Flux.just(review));
+
+        StepVerifier.create(movieService.getMoviesByIds(List.of("2", "3", "1")))
+                .assertNext(movie -> {
+                    assertEquals("2", movie.getMovieInfo().getMovieInfoId());
+                    assertEquals(0, movie.getReviewList().size());
+                })
+                .assertNext(movie -> {
+                    assertEquals("1", movie.getMovieInfo().getMovieInfoId());
+                    assertEquals(List.of(review), movie.getReviewList());
+                })
+                .verifyComplete();
+
+        verify(reviewReactiveRepositoryMock, times(1)).findByMovieInfoIdIn(anyCollection());
+    }
+
+    @Test
+    void getMoviesByIds_InProcess_ZeroPaddedAndObjectIds() {
+        MovieServiceImpl movieService = movieService(MovieServiceImpl.InProcessMode.ALWAYS);
+        MovieInfo paddedMovieInfo = new MovieInfo("001", "Batman Begins", 2005,
+                List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        MovieInfo objectIdMovieInfo = new MovieInfo("64b7f0c2e4b0a1a2b3c4d5e6", "The Dark Knight", 2008,
+                List.of("Christian Bale", "Heath Ledger"), LocalDate.parse("2008-07-18"));
+
+        when(movieInfoServiceMock.findById("001")).thenReturn(Mono.just(paddedMovieInfo));
+        when(movieInfoServiceMock.findById("64b7f0c2e4b0a1a2b3c4d5e6")).thenReturn(Mono.just(objectIdMovieInfo));
+        when(reviewReactiveRepositoryMock.findByMovieInfoIdIn(anyCollection())).thenReturn(Flux.just(review));
+
+        StepVerifier.create(movieService.getMoviesByIds(List.of("001", "64b7f0c2e4b0a1a2b3c4d5e6")))
+                .assertNext(movie -> assertEquals(List.of(review), movie.getReviewList()))
+                .assertNext(movie -> assertEquals(List.of(), movie.getReviewList()))
+                .verifyComplete();
+
+        verify(reviewReactiveRepositoryMock).findByMovieInfoIdIn(Set.of(1L));
+    }
+
+    @Test
+    void getMoviesByIds_OverHttp_NonNumericIdsNotSentToReviews() {
+        MovieServiceImpl movieService = movieService(MovieServiceImpl.InProcessMode.NEVER);
+        MovieInfo textIdMovieInfo = new MovieInfo("abc", "The Dark Knight", 2008,
+                List.of("Christian Bale", "Heath Ledger"), LocalDate.parse("2008-07-18"));
+
+        when(moviesInfoRestClientMock.retrieveMovieInfo("abc")).thenReturn(Mono.just(textIdMovieInfo));
+        when(moviesInfoRestClientMock.retrieveMovieInfo("1")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClientMock.retrieveReviews(List.of("1"))).thenReturn(Flux.just(review));
+
+        StepVerifier.create(movieService.getMoviesByIds(List.of("abc", "1")))
+                .assertNext(movie -> {
+                    assertEquals("abc", movie.getMovieInfo().getMovieInfoId());
+                    assertEquals(0, movie.getReviewList().size());
+                })
+                .assertNext(movie -> assertEquals(List.of(review), movie.getReviewList()))
+                .verifyComplete();
+
+        verify(reviewsRestClientMock, times(1)).retrieveReviews(List.of("1"));
+    }
+
+    @Test
+    void pointsAtThisServer() {
+        assertTrue(MovieServiceImpl.pointsAtThisServer(MOVIES_INFO_URL, 8080, "/v1/movieInfos"));
+        assertFalse(MovieServiceImpl.pointsAtThisServer(MOVIES_INFO_URL, 8081, "/v1/movieInfos"));
+        assertFalse(MovieServiceImpl.pointsAtThisServer("http://movies:8080/v1/movieInfos", 8080, "/v1/movieInfos"));
+    }
+
+    private MovieServiceImpl movieService(MovieServiceImpl.InProcessMode inProcessMode) {
+        return new MovieServiceImpl(moviesInfoRestClientMock, reviewsRestClientMock, movieInfoServiceMock,
+                reviewReactiveRepositoryMock, inProcessMode, MOVIES_INFO_URL, REVIEWS_URL, Duration.ofMinutes(1), Duration.ofMinutes(10));
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.springwebfluxmongodb.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BroadcasterTest {
+
+    private Broadcaster<Integer> broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        this.broadcaster.destroy();
+    }
+
+    @Test
+    void slowSubscriber_DropOldest() {
+        this.broadcaster = broadcaster(Broadcaster.OverflowPolicy.DROP_OLDEST);
+
+        StepVerifier.create(this.broadcaster.subscribe(), 0)
+                .then(() -> publish(5))
+                .then(() -> {
+                    SubscriberStats stats = this.broadcaster.subscriberStats().get(0);
+                    assertEquals(2, stats.getLag());
+                    assertEquals(3, stats.getDropped());
+                })
+                .thenRequest(10)
+                .expectNext(4, 5)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void slowSubscriber_DropNewest() {
+        this.broadcaster = broadcaster(Broadcaster.OverflowPolicy.DROP_NEWEST);
+
+        StepVerifier.create(this.broadcaster.subscribe(), 0)
+                .then(() -> publish(5))
+                .thenRequest(10)
+                .expectNext(1, 2)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void slowSubscriber_Disconnect() {
+        this.broadcaster = broadcaster(Broadcaster.OverflowPolicy.DISCONNECT);
+
+        StepVerifier.create(this.broadcaster.subscribe(), 0)
+                .then(() -> publish(3))
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        assertEquals(0, this.broadcaster.subscriberStats().size());
+    }
+
+    @Test
+    void slowSubscriber_DoesNotStallOthers() {
+        this.broadcaster = broadcaster(Broadcaster.OverflowPolicy.DROP_OLDEST);
+
+        this.broadcaster.subscribe().subscribe(event -> {}, error -> {}, () -> {}, subscription -> {});
+
+        StepVerifier.create(this.broadcaster.subscribe())
+                .then(() -> publish(5))
+                .expectNext(1, 2, 3, 4, 5)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void subscribe_ReplaysLatest() {
+        this.broadcaster = broadcaster(Broadcaster.OverflowPolicy.DROP_OLDEST);
+        publish(3);
+
+        StepVerifier.create(this.broadcaster.subscribe())
+                .expectNext(3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void topicSubscriber_OnlyMatchingEvents() {
+        this.broadcaster = new Broadcaster<>("test", 16, Broadcaster.OverflowPolicy.DROP_OLDEST, Duration.ofSeconds(15),
+                Duration.ofSeconds(60), 16, new SimpleMeterRegistry(), event -> List.of(event % 2 == 0 ? "even" : "odd"));
+
+        StepVerifier.create(this.broadcaster.subscribe("even"))
+                .then(() -> publish(5))
+                .expectNext(2, 4)
+                .then(() -> assertEquals("even", this.broadcaster.subscriberStats().get(0).getTopic()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, this.broadcaster.subscriberStats().size());
+    }
+
+    @Test
+    void subscribe_LastEventId_ReplaysGap() {
+        this.broadcaster = broadcaster(Broadcaster.OverflowPolicy.DROP_OLDEST);
+        List<SequencedEvent<Integer>> events = new ArrayList<>();
+
+        StepVerifier.create(this.broadcaster.subscribe(null, null).take(3))
+                .recordWith(() -> events)
+                .then(() -> publish(3))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertTrue(events.get(0).getId() < events.get(1).getId() && events.get(1).getId() < events.get(2).getId());
+
+        // the ring keeps the last 4 events, the client saw the first one
+        StepVerifier.create(this.broadcaster.subscribe(null, events.get(0).getId()).map(SequencedEvent::getEvent))
+                .expectNext(2, 3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void subscribe_LastEventId_ReplaysInPublishOrder() {
+        this.broadcaster = broadcaster(Broadcaster.OverflowPolicy.DROP_OLDEST);
+
+        // ids given by concurrent publishers, 11 was allocated before 12 but published after it
+        this.broadcaster.publish(10, 1);
+        this.broadcaster.publish(12, 2);
+        this.broadcaster.publish(11, 3);
+
+        StepVerifier.create(this.broadcaster.subscribe(null, 12L).map(SequencedEvent::getEvent))
+                .expectNext(3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void retainedEvent_ReplayedButNotDeliveredAsLatest() {
+        this.broadcaster = broadcaster(Broadcaster.OverflowPolicy.DROP_OLDEST);
+        this.broadcaster.retain(10, 1);
+        this.broadcaster.retain(11, 2);
+
+        StepVerifier.create(this.broadcaster.subscribe(null, 10L).map(SequencedEvent::getEvent))
+                .expectNext(2)
+                .thenCancel()
+                .verify();
+
+        StepVerifier.create(this.broadcaster.subscribe(null, null).map(SequencedEvent::getEvent))
+                .then(() -> this.broadcaster.publish(12, 3))
+                .expectNext(3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void quietSubscriber_NotIdleOnFirstBufferedEvent() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.broadcaster = new Broadcaster<>("test", 2, Broadcaster.OverflowPolicy.DROP_OLDEST, Duration.ofMillis(50),
+                Duration.ofMillis(300), 4, meterRegistry);
+
+        StepVerifier.create(this.broadcaster.subscribe(), 0)
+                .thenAwait(Duration.ofMillis(500))
+                .then(() -> publish(1))
+                .thenAwait(Duration.ofMillis(150))
+                .thenRequest(1)
+                .expectNext(1)
+                .thenCancel()
+                .verify(Duration.ofSeconds(2));
+
+        assertEquals(0, meterRegistry.get("stream.disconnected").tag("reason", "idle").counter().count());
+    }
+
+    @Test
+    void stuckSubscriber_DisconnectedAfterIdleTimeout() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.broadcaster = new Broadcaster<>("test", 2, Broadcaster.OverflowPolicy.DROP_OLDEST, Duration.ofMillis(50),
+                Duration.ofMillis(300), 4, meterRegistry);
+
+        StepVerifier.create(this.broadcaster.subscribe(), 0)
+                .then(() -> publish(1))
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+
+        assertEquals(1, meterRegistry.get("stream.disconnected").tag("reason", "idle").counter().count());
+        assertEquals(0, this.broadcaster.subscriberStats().size());
+    }
+
+    private void publish(int count) {
+        IntStream.rangeClosed(1, count).forEach(this.broadcaster::publish);
+    }
+
+    private static Broadcaster<Integer> broadcaster(Broadcaster.OverflowPolicy overflowPolicy) {
+        return new Broadcaster<>("test", 2, overflowPolicy, Duration.ofSeconds(15), Duration.ofSeconds(60), 4, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.springwebfluxmongodb.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+class NdjsonStreamsTest {
+
+    private final Broadcaster<Integer> broadcaster = new Broadcaster<>("test", 2, Broadcaster.OverflowPolicy.DROP_OLDEST,
+            Duration.ofMillis(50), Duration.ofSeconds(60), 4, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        this.broadcaster.destroy();
+    }
+
+    @Test
+    void quietStream_WritesHeartbeatLines() {
+        EventStream<Integer> eventStream = new LocalEventStream<>(this.broadcaster);
+
+        StepVerifier.create(NdjsonStreams.of(eventStream, eventStream.subscribe(), new ObjectMapper()).map(NdjsonStreamsTest::asString))
+                .expectNext("\n")
+                .then(() -> this.broadcaster.publish(42))
+                .thenConsumeWhile(line -> line.equals("\n"))
+                .expectNext("42\n")
+                .thenCancel()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void eventsDone_StopsHeartbeats() {
+        EventStream<Integer> eventStream = new LocalEventStream<>(this.broadcaster);
+
+        StepVerifier.create(NdjsonStreams.of(eventStream, eventStream.subscribe().take(1), new ObjectMapper()).map(NdjsonStreamsTest::asString))
+                .then(() -> this.broadcaster.publish(42))
+                .thenConsumeWhile(line -> line.equals("\n"))
+                .expectNext("42\n")
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    private static String asString(DataBuffer dataBuffer) {
+        return dataBuffer.toString(StandardCharsets.UTF_8);
+    }
+}